@@ -15,7 +15,14 @@
  */
 package com.kevinquan.android.stubs;
 
+import java.io.PrintStream;
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.IllegalFormatException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.kevinquan.utils.logging.AsyncLogBackend;
+import com.kevinquan.utils.logging.LogRecord;
 
 /**
  * This is an stub for the Android Log interface, which is useful when copying over Android util classes
@@ -25,136 +32,344 @@ import java.lang.reflect.Method;
 
 public class Log {
 
-	public static void d(String tag, String message) {
-        if (tag == null) {
-            tag = "";
+    /**
+     * Builds a log message only when the statement it belongs to is enabled, so that disabled statements don't pay for
+     * concatenating or formatting it.  Suppliers are passed to the *Lazy methods, which are named apart from the plain ones so that
+     * a call such as d(tag, null) still resolves to the String overload.
+     */
+    public interface MessageSupplier {
+        String get();
+    }
+
+    /**
+     * Removes the minimum level set for a tag, so that it uses the minimum level set for all tags
+     * @param tag The tag
+     */
+    public static synchronized void clearMinimumLevel(String tag) {
+        TAG_MINIMUM_LEVELS.remove(tag == null ? "" : tag);
+        updateLowestMinimumLevel();
+    }
+
+    public static void d(String tag, String message) {
+        if (isLoggable(tag, DEBUG)) {
+            log(DEBUG, tag, message, null);
         }
-        if (HAS_ANDROID) {
-        	logAndroid("d", tag, message);
-        } else {
-        	System.out.println("[D] "+tag+": "+message);
+    }
+
+    public static void dFormat(String tag, String format, Object... args) {
+        if (isLoggable(tag, DEBUG)) {
+            log(DEBUG, tag, formatMessage(format, args), null);
         }
     }
 
-	public static void e(String tag, String message) {
-        if (tag == null) {
-            tag = "";
+    public static void dLazy(String tag, MessageSupplier message) {
+        if (isLoggable(tag, DEBUG)) {
+            log(DEBUG, tag, message == null ? null : message.get(), null);
         }
-        if (HAS_ANDROID) {
-        	logAndroid("e", tag, message);
-        } else {
-        	System.err.println("[E] "+tag+": "+message);
+    }
+
+    public static void e(String tag, String message) {
+        if (isLoggable(tag, ERROR)) {
+            log(ERROR, tag, message, null);
         }
     }
-	public static void e(String tag, String message, Throwable throwable) {
-        if (tag == null) {
-            tag = "";
+
+    public static void e(String tag, String message, Throwable throwable) {
+        if (isLoggable(tag, ERROR)) {
+            log(ERROR, tag, message, throwable);
         }
-        if (HAS_ANDROID) {
-        	logAndroid("e", tag, message, throwable);
-        } else {
-        	System.err.println("[E] "+tag+": "+message);
-        	throwable.printStackTrace(System.err);
+    }
+
+    public static void eFormat(String tag, String format, Object... args) {
+        if (isLoggable(tag, ERROR)) {
+            log(ERROR, tag, formatMessage(format, args), null);
+        }
+    }
+
+    public static void eLazy(String tag, MessageSupplier message) {
+        if (isLoggable(tag, ERROR)) {
+            log(ERROR, tag, message == null ? null : message.get(), null);
+        }
+    }
+
+    public static void eLazy(String tag, MessageSupplier message, Throwable throwable) {
+        if (isLoggable(tag, ERROR)) {
+            log(ERROR, tag, message == null ? null : message.get(), throwable);
+        }
+    }
+
+    /**
+     * Formats a log message for the *Format methods, falling back to the unformatted message if the format is invalid.  Those
+     * methods are named apart from the plain ones so that a call such as e(tag, message, null) still resolves to the Throwable
+     * overload.
+     * @param format The format, as used by {@link String#format(String, Object...)}
+     * @param args The arguments to the format
+     * @return The formatted message
+     */
+    protected static String formatMessage(String format, Object... args) {
+        if (format == null || args == null || args.length == 0) {
+            return format;
+        }
+        try {
+            return String.format(format, args);
+        } catch (IllegalFormatException ife) {
+            return format+" "+Arrays.toString(args);
         }
     }
 
     public static void i(String tag, String message) {
+        if (isLoggable(tag, INFO)) {
+            log(INFO, tag, message, null);
+        }
+    }
+
+    public static void iFormat(String tag, String format, Object... args) {
+        if (isLoggable(tag, INFO)) {
+            log(INFO, tag, formatMessage(format, args), null);
+        }
+    }
+
+    public static void iLazy(String tag, MessageSupplier message) {
+        if (isLoggable(tag, INFO)) {
+            log(INFO, tag, message == null ? null : message.get(), null);
+        }
+    }
+
+    /**
+     * Determines whether statements at a level would be logged for a tag.  This is a single comparison unless tags have their
+     * own minimum levels, so it can be used to guard expensive logging in hot loops.
+     * @param tag The tag
+     * @param level The level of the statement, e.g., {@link #DEBUG}
+     * @return True if the statement would be logged
+     */
+    public static boolean isLoggable(String tag, int level) {
+        if (level < sLowestMinimumLevel) {
+            return false;
+        }
+        if (!TAG_MINIMUM_LEVELS.isEmpty()) {
+            Integer tagLevel = TAG_MINIMUM_LEVELS.get(tag == null ? "" : tag);
+            if (tagLevel != null) {
+                return level >= tagLevel;
+            }
+        }
+        return level >= sMinimumLevel;
+    }
+
+    /**
+     * Writes an enabled log statement to Android's log, or to the console
+     * @param level The level of the statement
+     * @param tag The tag
+     * @param message The message
+     * @param throwable The throwable to log the stack trace of, if any
+     */
+    protected static void log(int level, String tag, String message, Throwable throwable) {
         if (tag == null) {
             tag = "";
         }
         if (HAS_ANDROID) {
-        	logAndroid("i", tag, message);
+            if (throwable == null) {
+                logAndroid(level, tag, message);
+            } else {
+                logAndroid(level, tag, message, throwable);
+            }
         } else {
-        	System.out.println("[I] "+tag+": "+message);
+            println(level, tag, message, throwable);
         }
     }
 
-    protected static void logAndroid(String methodName, String tag, String message) {
-    	Method logMethod = null;
-    	try {
-    		logMethod = Class.forName(ANDROID_LOG_CLASS).getMethod(methodName, String.class, String.class);
-    	} catch (ClassNotFoundException cnfe) {
-    		System.err.println("Attempted to retrieve Android Log class method "+methodName+" when Android Log class doesn't exist");
-    		return;
-    	} catch (NoSuchMethodException nsme) {
-    		System.err.println("Attempted to retrieve Android Log class method "+methodName+" when it does not exist");
-    		return;
-    	}
+    protected static void logAndroid(int level, String tag, String message) {
+    	Method logMethod = level < ANDROID_LOG_METHODS.length ? ANDROID_LOG_METHODS[level] : null;
     	if (logMethod == null) {
-    		System.err.println("Could not find method "+methodName+" with tag and message parameters in Android Log class");
+    		System.err.println("Could not find method for level "+level+" with tag and message parameters in Android Log class");
     		return;
     	}
     	try {
     		logMethod.invoke(null, tag, message);
     	} catch (Exception e) {
-    		System.err.println("Could not invoke method: "+methodName);
+    		System.err.println("Could not invoke method: "+logMethod.getName());
     	}
     }
 
-    protected static void logAndroid(String methodName, String tag, String message, Throwable t) {
-    	Method logMethod = null;
-    	try {
-    		logMethod = Class.forName(ANDROID_LOG_CLASS).getMethod(methodName, String.class, String.class, Throwable.class);
-    	} catch (ClassNotFoundException cnfe) {
-    		System.err.println("Attempted to retrieve Android Log class method "+methodName+" when Android Log class doesn't exist");
-    		return;
-    	} catch (NoSuchMethodException nsme) {
-    		System.err.println("Attempted to retrieve Android Log class method "+methodName+" when it does not exist");
-    		return;
-    	}
+    protected static void logAndroid(int level, String tag, String message, Throwable t) {
+    	Method logMethod = level < ANDROID_LOG_THROWABLE_METHODS.length ? ANDROID_LOG_THROWABLE_METHODS[level] : null;
     	if (logMethod == null) {
-    		System.err.println("Could not find method "+methodName+" with tag and message parameters in Android Log class");
+    		System.err.println("Could not find method for level "+level+" with tag, message and throwable parameters in Android Log class");
     		return;
     	}
     	try {
     		logMethod.invoke(null, tag, message, t);
     	} catch (Exception e) {
-    		System.err.println("Could not invoke method: "+methodName);
+    		System.err.println("Could not invoke method: "+logMethod.getName());
     	}
     }
 
+    /**
+     * Looks up the Android Log methods for each level, so that they don't need to be looked up on every call
+     * @param logClass The Android Log class
+     * @param parameterTypes The parameters of the methods to look up
+     * @return The methods, indexed by level.  Levels without a method are null.
+     */
+    protected static Method[] resolveAndroidMethods(Class<?> logClass, Class<?>... parameterTypes) {
+    	Method[] methods = new Method[ANDROID_LOG_METHOD_NAMES.length];
+    	for (int level = 0; level < ANDROID_LOG_METHOD_NAMES.length; level++) {
+    		if (ANDROID_LOG_METHOD_NAMES[level] == null) {
+    			continue;
+    		}
+    		try {
+    			methods[level] = logClass.getMethod(ANDROID_LOG_METHOD_NAMES[level], parameterTypes);
+    		} catch (NoSuchMethodException nsme) {
+    			System.err.println("Attempted to retrieve Android Log class method "+ANDROID_LOG_METHOD_NAMES[level]+" when it does not exist");
+    		}
+    	}
+    	return methods;
+    }
+
+    /**
+     * Writes a log statement to the console, or queues it with the asynchronous backend if one is running
+     * @param level The level of the statement
+     * @param tag The tag
+     * @param message The message
+     * @param throwable The throwable to print the stack trace of, if any
+     */
+    protected static void println(int level, String tag, String message, Throwable throwable) {
+        AsyncLogBackend backend = sAsyncBackend;
+        if (backend != null && backend.enqueue(new LogRecord(level, tag, message, throwable))) {
+            return;
+        }
+        PrintStream stream = level >= WARN ? System.err : System.out;
+        stream.println("["+LogRecord.getLevelLabel(level)+"] "+tag+": "+message);
+        if (throwable != null) {
+            throwable.printStackTrace(stream);
+        }
+    }
+
+    /**
+     * Sets the backend that console log statements are queued with, so that they are written on a background thread.
+     * Statements are written synchronously if there is no backend or it isn't running.  Statements on Android are unaffected.
+     * @param backend The backend to use, which should already be started, or null to write synchronously
+     */
+    public static void setAsyncBackend(AsyncLogBackend backend) {
+        sAsyncBackend = backend;
+    }
+
+    /**
+     * Sets the level below which statements are not logged, for tags without their own minimum level
+     * @param level The minimum level, e.g., {@link #INFO}.  Defaults to {@link #VERBOSE}, so everything is logged.
+     */
+    public static synchronized void setMinimumLevel(int level) {
+        sMinimumLevel = level;
+        updateLowestMinimumLevel();
+    }
+
+    /**
+     * Sets the level below which statements with a tag are not logged, overriding the minimum level set for all tags
+     * @param tag The tag
+     * @param level The minimum level for the tag
+     */
+    public static synchronized void setMinimumLevel(String tag, int level) {
+        TAG_MINIMUM_LEVELS.put(tag == null ? "" : tag, level);
+        updateLowestMinimumLevel();
+    }
+
+    /**
+     * Recalculates the lowest level that is logged for any tag, which lets most disabled statements be rejected with one comparison
+     */
+    protected static void updateLowestMinimumLevel() {
+        int lowest = sMinimumLevel;
+        for (Integer tagLevel : TAG_MINIMUM_LEVELS.values()) {
+            lowest = Math.min(lowest, tagLevel);
+        }
+        sLowestMinimumLevel = lowest;
+    }
+
     public static void v(String tag, String message) {
-        if (tag == null) {
-            tag = "";
+        if (isLoggable(tag, VERBOSE)) {
+            log(VERBOSE, tag, message, null);
         }
-        if (HAS_ANDROID) {
-        	logAndroid("v", tag, message);
-        } else {
-        	System.out.println("[V] "+tag+": "+message);
+    }
+
+    public static void vFormat(String tag, String format, Object... args) {
+        if (isLoggable(tag, VERBOSE)) {
+            log(VERBOSE, tag, formatMessage(format, args), null);
         }
     }
 
-    public static void w(String tag, String message) {
-        if (tag == null) {
-            tag = "";
+    public static void vLazy(String tag, MessageSupplier message) {
+        if (isLoggable(tag, VERBOSE)) {
+            log(VERBOSE, tag, message == null ? null : message.get(), null);
         }
-        if (HAS_ANDROID) {
-        	logAndroid("w", tag, message);
-        } else {
-        	System.err.println("[W] "+tag+": "+message);
+    }
+
+    public static void w(String tag, String message) {
+        if (isLoggable(tag, WARN)) {
+            log(WARN, tag, message, null);
         }
     }
 
     public static void w(String tag, String message, Throwable throwable) {
-        if (tag == null) {
-            tag = "";
+        if (isLoggable(tag, WARN)) {
+            log(WARN, tag, message, throwable);
         }
-        if (HAS_ANDROID) {
-        	logAndroid("w", tag, message, throwable);
-        } else {
-        	System.err.println("[W] "+tag+": "+message);
-        	throwable.printStackTrace(System.err);
+    }
+
+    public static void wFormat(String tag, String format, Object... args) {
+        if (isLoggable(tag, WARN)) {
+            log(WARN, tag, formatMessage(format, args), null);
+        }
+    }
+
+    public static void wLazy(String tag, MessageSupplier message) {
+        if (isLoggable(tag, WARN)) {
+            log(WARN, tag, message == null ? null : message.get(), null);
         }
     }
 
+    public static void wLazy(String tag, MessageSupplier message, Throwable throwable) {
+        if (isLoggable(tag, WARN)) {
+            log(WARN, tag, message == null ? null : message.get(), throwable);
+        }
+    }
+
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+    public static final int ASSERT = 7;
+
     protected static final String ANDROID_LOG_CLASS = "android.util.Log";
 
+    protected static volatile AsyncLogBackend sAsyncBackend;
+
+    /**
+     * The level below which statements are not logged, for tags without their own minimum level
+     */
+    protected static volatile int sMinimumLevel = VERBOSE;
+
+    /**
+     * The lowest minimum level of any tag, below which no statement is logged
+     */
+    protected static volatile int sLowestMinimumLevel = VERBOSE;
+
+    protected static final ConcurrentHashMap<String, Integer> TAG_MINIMUM_LEVELS = new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * The names of the Android Log methods, indexed by level
+     */
+    protected static final String[] ANDROID_LOG_METHOD_NAMES = {null, null, "v", "d", "i", "w", "e"};
+
     protected static boolean HAS_ANDROID = false;
 
+    protected static Method[] ANDROID_LOG_METHODS = new Method[0];
+
+    protected static Method[] ANDROID_LOG_THROWABLE_METHODS = new Method[0];
+
     static {
 	    try {
-	        Class.forName(ANDROID_LOG_CLASS);
+	        Class<?> logClass = Class.forName(ANDROID_LOG_CLASS);
 	        HAS_ANDROID = true;
+	        ANDROID_LOG_METHODS = resolveAndroidMethods(logClass, String.class, String.class);
+	        ANDROID_LOG_THROWABLE_METHODS = resolveAndroidMethods(logClass, String.class, String.class, Throwable.class);
 	    } catch (ClassNotFoundException squelched) {}
 	}
 
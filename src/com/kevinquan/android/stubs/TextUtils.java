@@ -7,29 +7,14 @@ import com.kevinquan.utils.StringUtils;
 public class TextUtils extends StringUtils {
 
     public static final boolean equals(CharSequence first, CharSequence second) {
-    	if (!HAS_ANDROID) {
+    	if (ANDROID_EQUALS_METHOD == null) {
 	        return equals_internal(first, second);
-    	} else {
-    		Method logMethod = null;
-        	try {
-        		logMethod = Class.forName(ANDROID_TEXT_UTILS_CLASS).getMethod("equals", CharSequence.class, CharSequence.class);
-        	} catch (ClassNotFoundException cnfe) {
-        		System.err.println("Attempted to retrieve Android TextUtils equals method when Android TextUtils class doesn't exist");
-        		return equals_internal(first, second);
-        	} catch (NoSuchMethodException nsme) {
-        		System.err.println("Attempted to retrieve Android TextUtils equals method when it does not exist");
-        		return equals_internal(first, second);
-        	}
-        	if (logMethod == null) {
-        		System.err.println("Could not find equals method with CharSequence parameters in Android TextUtils class");
-        		return equals_internal(first, second);
-        	}
-        	try {
-        		return (Boolean)logMethod.invoke(null, first, second);
-        	} catch (Exception e) {
-        		System.err.println("Could not invoke equals method");
-        		return equals_internal(first, second);
-        	}
+    	}
+    	try {
+    		return (Boolean)ANDROID_EQUALS_METHOD.invoke(null, first, second);
+    	} catch (Exception e) {
+    		System.err.println("Could not invoke equals method");
+    		return equals_internal(first, second);
     	}
     }
 
@@ -46,40 +31,35 @@ public class TextUtils extends StringUtils {
     }
 
     public static final boolean isEmpty(CharSequence string) {
-    	if (!HAS_ANDROID) {
+    	if (ANDROID_IS_EMPTY_METHOD == null) {
 	        return isEmpty_internal(string);
-    	} else {
-    		Method logMethod = null;
-        	try {
-        		logMethod = Class.forName(ANDROID_TEXT_UTILS_CLASS).getMethod("isEmpty", CharSequence.class);
-        	} catch (ClassNotFoundException cnfe) {
-        		System.err.println("Attempted to retrieve Android TextUtils isEmpty method when Android TextUtils class doesn't exist");
-        		return isEmpty_internal(string);
-        	} catch (NoSuchMethodException nsme) {
-        		System.err.println("Attempted to retrieve Android TextUtils isEmpty method when it does not exist");
-        		return isEmpty_internal(string);
-        	}
-        	if (logMethod == null) {
-        		System.err.println("Could not find isEmpty method with CharSequence parameters in Android TextUtils class");
-        		return isEmpty_internal(string);
-        	}
-        	try {
-        		return (Boolean)logMethod.invoke(null, string);
-        	} catch (Exception e) {
-        		System.err.println("Could not invoke isEmpty method");
-        		return isEmpty_internal(string);
-        	}
+    	}
+    	try {
+    		return (Boolean)ANDROID_IS_EMPTY_METHOD.invoke(null, string);
+    	} catch (Exception e) {
+    		System.err.println("Could not invoke isEmpty method");
+    		return isEmpty_internal(string);
     	}
     }
 
     protected static final boolean isEmpty_internal(CharSequence string) {
-        if (string == null || string.length() == 0) {
-            return true;
-        }
-        if (string instanceof String && ((String)string).trim().length() == 0) {
-            return true;
-        }
-        return false;
+        return isBlank(string);
+    }
+
+    /**
+     * Looks up an Android TextUtils method, so that it doesn't need to be looked up on every call
+     * @param textUtilsClass The Android TextUtils class
+     * @param name The name of the method
+     * @param parameterTypes The parameters of the method
+     * @return The method, or null if it does not exist
+     */
+    protected static Method resolveAndroidMethod(Class<?> textUtilsClass, String name, Class<?>... parameterTypes) {
+    	try {
+    		return textUtilsClass.getMethod(name, parameterTypes);
+    	} catch (NoSuchMethodException nsme) {
+    		System.err.println("Attempted to retrieve Android TextUtils "+name+" method when it does not exist");
+    		return null;
+    	}
     }
 
     @SuppressWarnings("unused")
@@ -89,10 +69,18 @@ public class TextUtils extends StringUtils {
 
     protected static boolean HAS_ANDROID = false;
 
+    /**
+     * The Android TextUtils methods, or null to use the internal implementations when not running on Android
+     */
+    protected static Method ANDROID_EQUALS_METHOD = null;
+    protected static Method ANDROID_IS_EMPTY_METHOD = null;
+
     static {
 	    try {
-	        Class.forName(ANDROID_TEXT_UTILS_CLASS);
+	        Class<?> textUtilsClass = Class.forName(ANDROID_TEXT_UTILS_CLASS);
 	        HAS_ANDROID = true;
+	        ANDROID_EQUALS_METHOD = resolveAndroidMethod(textUtilsClass, "equals", CharSequence.class, CharSequence.class);
+	        ANDROID_IS_EMPTY_METHOD = resolveAndroidMethod(textUtilsClass, "isEmpty", CharSequence.class);
 	    } catch (ClassNotFoundException squelched) {}
 	}
 }
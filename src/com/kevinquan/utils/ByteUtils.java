@@ -15,11 +15,10 @@
  */
 package com.kevinquan.utils;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.Locale;
+import java.util.Arrays;
 
 import com.kevinquan.android.stubs.Log;
 
@@ -30,6 +29,48 @@ import com.kevinquan.android.stubs.Log;
  */
 public class ByteUtils {
 
+    /**
+     * Appends the hexadecimal representation of a region of a byte array to the destination without allocating.
+     * The characters will always be lowercase.
+     * @param input The byte array to convert
+     * @param offset The offset of the first byte to convert
+     * @param length The number of bytes to convert
+     * @param destination The destination to append the characters to
+     * @throws IOException If the destination could not be appended to
+     */
+    public static void appendHexString(byte[] input, int offset, int length, Appendable destination) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            destination.append(HEX_DIGITS[(input[i] >> 4) & 0x0f]);
+            destination.append(HEX_DIGITS[input[i] & 0x0f]);
+        }
+    }
+
+    /**
+     * Converts a hexadecimal string back into the bytes it represents.  Both uppercase and lowercase digits are accepted.
+     * @param input The hexadecimal string to convert
+     * @return The bytes represented by the string, or null if it is not a valid hexadecimal string
+     */
+    public static byte[] convertFromHexString(CharSequence input) {
+        if (input == null || input.length() == 0) {
+            return new byte[] {};
+        }
+        if (input.length() % 2 != 0) {
+            Log.w(TAG, "Hexadecimal string has an odd number of digits.");
+            return null;
+        }
+        byte[] result = new byte[input.length() / 2];
+        for (int i = 0; i < result.length; i++) {
+            int high = hexValue(input.charAt(2 * i));
+            int low = hexValue(input.charAt(2 * i + 1));
+            if (high < 0 || low < 0) {
+                Log.w(TAG, "Hexadecimal string has an invalid digit near position "+(2 * i)+".");
+                return null;
+            }
+            result[i] = (byte)((high << 4) | low);
+        }
+        return result;
+    }
+
     /**
      * Writes the input to the output stream and closes both streams.  No additional buffering is performed on the input stream.
      * Both streams will be closed.
@@ -40,6 +81,21 @@ public class ByteUtils {
         convertStream(input, output, true);
     }
 
+    /**
+     * Takes the scratch buffer which belongs to the calling thread, so that short-lived copies don't allocate a new buffer each
+     * time.  Until it is handed back with {@link #releaseScratchBuffer(byte[])}, further calls on the thread (e.g., from a stream
+     * which is itself converted while it is being read) get a new buffer instead of sharing it.
+     * @return A buffer of {@link #SCRATCH_BUFFER_SIZE} bytes
+     */
+    private static byte[] borrowScratchBuffer() {
+        byte[] buffer = SCRATCH_BUFFER.get();
+        if (buffer == null) {
+            return new byte[SCRATCH_BUFFER_SIZE];
+        }
+        SCRATCH_BUFFER.set(null);
+        return buffer;
+    }
+
     /**
      * Writes the input to the output stream and closes both streams if it is desired
      * @param input The input stream to read
@@ -47,7 +103,7 @@ public class ByteUtils {
      * @param close whether both streams should be closed after completion
      */
     public static void convertStream(InputStream input, OutputStream output, boolean close) {
-        byte[] buffer = new byte[1024];
+        byte[] buffer = borrowScratchBuffer();
         int readBytes = 0;
         try {
             while ((readBytes = input.read(buffer)) != -1) {
@@ -56,6 +112,8 @@ public class ByteUtils {
             output.flush();
         } catch (IOException ioe) {
             Log.e(TAG, "Could not write input to output stream.", ioe);
+        } finally {
+            releaseScratchBuffer(buffer);
         }
         try {
             if (close) {
@@ -74,28 +132,66 @@ public class ByteUtils {
      * @return A byte array with the contents of the stream
      */
     public static byte[] convertStreamToByteArray(InputStream stream) {
+        return convertStreamToByteArray(stream, 0);
+    }
+
+    /**
+     * Converts the input stream to a byte array.  The reading of the input stream is not buffered.  The input stream will not be closed.
+     * When the expected length of the stream is known (e.g., from a Content-Length header), the result is read into an array of that
+     * size directly and no copy is made if the stream is exactly that long.  As the length may come from an untrusted peer, at most
+     * {@link #MAX_PRESIZED_LENGTH} bytes are allocated up front, and the array only grows beyond that as data actually arrives.
+     * Otherwise the stream is read through this thread's scratch buffer, so only streams larger than the scratch buffer need a
+     * growing array.
+     * @param stream The stream to convert
+     * @param expectedLength The expected length of the stream, or 0 if it is unknown
+     * @return A byte array with the contents of the stream
+     */
+    public static byte[] convertStreamToByteArray(InputStream stream, int expectedLength) {
         if (stream == null) {
             return new byte[] {};
         }
-        ByteArrayOutputStream buf = new ByteArrayOutputStream();
-        byte[] data = new byte[Short.MAX_VALUE-1];
-        int read = -1;
-
+        byte[] scratch = expectedLength > 0 ? null : borrowScratchBuffer();
+        byte[] data = expectedLength > 0 ? new byte[Math.min(expectedLength, MAX_PRESIZED_LENGTH)] : scratch;
+        int length = 0;
         try {
-            while ((read = stream.read(data, 0, data.length)) != -1) {
-                buf.write(data,0,read);
+            // Whenever the buffer is filled, check whether there is anything more to read before growing it
+            int next;
+            while ((length = readFully(stream, data, length)) == data.length && (next = stream.read()) != -1) {
+                if (data.length == MAX_ARRAY_SIZE) {
+                    throw new IOException("Stream is too large to fit in an array");
+                }
+                int size = (int)Math.min(Math.max((long)data.length * 2, SCRATCH_BUFFER_SIZE), MAX_ARRAY_SIZE);
+                // Don't grow past the expected length, so that a stream of exactly that length needs no copy at the end
+                data = Arrays.copyOf(data, expectedLength > data.length ? Math.min(size, expectedLength) : size);
+                data[length++] = (byte)next;
             }
-            buf.flush();
         } catch (IOException ioe) {
             Log.e(TAG, "Could not read from stream.", ioe);
         }
-        try {
-            return buf.toByteArray();
-        } finally {
-            try {
-                buf.close();
-            } catch (IOException ioe) {}
+        byte[] result = length == data.length && data != scratch ? data : Arrays.copyOf(data, length);
+        if (scratch != null) {
+            releaseScratchBuffer(scratch);
         }
+        return result;
+    }
+
+    /**
+     * Converts a region of a byte array into hexadecimal characters, writing them into the destination without allocating.
+     * The characters will always be lowercase.
+     * @param input The byte array to convert
+     * @param offset The offset of the first byte to convert
+     * @param length The number of bytes to convert
+     * @param destination The array to write the characters to, which must have room for twice the number of bytes converted
+     * @param destinationOffset The position in the destination to start writing at
+     * @return The number of characters written
+     */
+    public static int convertToHexChars(byte[] input, int offset, int length, char[] destination, int destinationOffset) {
+        int position = destinationOffset;
+        for (int i = offset; i < offset + length; i++) {
+            destination[position++] = HEX_DIGITS[(input[i] >> 4) & 0x0f];
+            destination[position++] = HEX_DIGITS[input[i] & 0x0f];
+        }
+        return position - destinationOffset;
     }
 
     /**
@@ -107,13 +203,81 @@ public class ByteUtils {
         if (input == null || input.length == 0) {
             return new String();
         }
-        // From http://stackoverflow.com/a/13006907/1339200
-        StringBuilder sb = new StringBuilder();
-        for (byte b : input) {
-           sb.append(String.format(Locale.ENGLISH, "%02x", b&0xff));
+        char[] result = new char[input.length * 2];
+        convertToHexChars(input, 0, input.length, result, 0);
+        return new String(result);
+    }
+
+    /**
+     * Determines the value of a single hexadecimal digit
+     * @param digit The digit
+     * @return The value of the digit, or -1 if it isn't a hexadecimal digit
+     */
+    protected static int hexValue(char digit) {
+        return digit < HEX_VALUES.length ? HEX_VALUES[digit] : -1;
+    }
+
+    /**
+     * Hands back a buffer taken with {@link #borrowScratchBuffer()}, so that the calling thread can reuse it
+     * @param buffer The buffer, which must not be used afterwards
+     */
+    private static void releaseScratchBuffer(byte[] buffer) {
+        SCRATCH_BUFFER.set(buffer);
+    }
+
+    /**
+     * Reads from a stream until either the buffer is full or the stream ends
+     * @param stream The stream to read from
+     * @param buffer The buffer to read into
+     * @param offset The offset in the buffer to start reading into
+     * @return The offset after the last byte read
+     * @throws IOException If the stream could not be read
+     */
+    protected static int readFully(InputStream stream, byte[] buffer, int offset) throws IOException {
+        int read;
+        while (offset < buffer.length && (read = stream.read(buffer, offset, buffer.length - offset)) != -1) {
+            offset += read;
         }
-        return sb.toString().toLowerCase(Locale.ENGLISH);
-     }
+        return offset;
+    }
 
     private static final String TAG = ByteUtils.class.getSimpleName();
+
+    /**
+     * The size of the per-thread scratch buffer
+     */
+    protected static final int SCRATCH_BUFFER_SIZE = 32 * 1024;
+
+    /**
+     * The most bytes allocated for a stream before any of it is read, however long it is expected to be
+     */
+    public static final int MAX_PRESIZED_LENGTH = 4 * 1024 * 1024;
+
+    /**
+     * The lowercase hexadecimal digits, indexed by their value
+     */
+    protected static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * The value of each hexadecimal digit, indexed by the digit's character.  Other characters have a value of -1.
+     */
+    protected static final byte[] HEX_VALUES = new byte['f' + 1];
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte)-1);
+        for (int i = 0; i < HEX_DIGITS.length; i++) {
+            HEX_VALUES[HEX_DIGITS[i]] = (byte)i;
+            HEX_VALUES[Character.toUpperCase(HEX_DIGITS[i])] = (byte)i;
+        }
+    }
+
+    /**
+     * The largest array size that can be reliably allocated
+     */
+    protected static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Each thread's scratch buffer, which is null while it is borrowed
+     */
+    private static final ThreadLocal<byte[]> SCRATCH_BUFFER = new ThreadLocal<byte[]>();
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2015 Kevin Quan (kevin.quan@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kevinquan.utils;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Helpers for running work concurrently
+ * @author Kevin Quan (kevin.quan@gmail.com)
+ *
+ */
+public class ConcurrencyUtils {
+
+    /**
+     * Retrieves a fork/join pool shared by the utilities that split their work into parallel tasks.  The pool is
+     * created on first use with one worker per available processor; its workers are daemon threads so the pool
+     * never needs to be shut down.
+     * @return The shared pool
+     */
+    public static synchronized ForkJoinPool getSharedForkJoinPool() {
+        if (sSharedPool == null) {
+            sSharedPool = new ForkJoinPool();
+        }
+        return sSharedPool;
+    }
+
+    @SuppressWarnings("unused")
+    private static final String TAG = ConcurrencyUtils.class.getSimpleName();
+
+    private static ForkJoinPool sSharedPool;
+}
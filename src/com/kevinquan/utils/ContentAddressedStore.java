@@ -0,0 +1,221 @@
+/*
+ * Copyright 2015 Kevin Quan (kevin.quan@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kevinquan.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import com.kevinquan.android.stubs.Log;
+import com.kevinquan.utils.crypto.CryptoUtils.HashAlgorithm;
+import com.kevinquan.utils.crypto.HashCalculatingInputStream;
+
+/**
+ * Stores content in files named by the hash of the content, so that identical content is only ever stored once.
+ * Content is hashed while it is written to a temporary file, which is then moved to a path sharded by the first two
+ * bytes of its hash (e.g., <code>ab/cd/abcd...</code>).  If the content is already stored, the temporary file is discarded.
+ * Stored files are made read-only, as they may be shared through hard links.
+ *
+ * @author Kevin Quan (kevin.quan@gmail.com)
+ *
+ */
+public class ContentAddressedStore {
+
+    protected File mRoot;
+    protected HashAlgorithm mAlgorithm;
+
+    /**
+     * @param root The directory to store content in
+     * @param algorithm The algorithm to address content by, which must be {@link HashAlgorithm#SHA256} or
+     * {@link HashAlgorithm#SHA512}.  Content with the same hash is assumed to be the same content, so weaker hashes whose
+     * collisions can be found or happen by chance could silently return the wrong content.
+     */
+    public ContentAddressedStore(File root, HashAlgorithm algorithm) {
+        if (root == null) {
+            throw new IllegalArgumentException("A root directory is required");
+        }
+        if (algorithm != HashAlgorithm.SHA256 && algorithm != HashAlgorithm.SHA512) {
+            throw new IllegalArgumentException("Content can only be addressed by a collision resistant hash, not "+algorithm);
+        }
+        mRoot = root;
+        mAlgorithm = algorithm;
+    }
+
+    /**
+     * Determines whether content with the provided hash is stored
+     * @param hash The hexadecimal hash of the content
+     * @return True if the content is stored
+     */
+    public boolean contains(String hash) {
+        return getFile(hash) != null;
+    }
+
+    public HashAlgorithm getAlgorithm() {
+        return mAlgorithm;
+    }
+
+    /**
+     * Looks up stored content by its hash
+     * @param hash The hexadecimal hash of the content
+     * @return The file holding the content, which must not be modified, or null if the content is not stored
+     */
+    public File getFile(String hash) {
+        File file = getPath(hash);
+        return file != null && file.isFile() ? file : null;
+    }
+
+    /**
+     * Determines where content with the provided hash is stored
+     * @param hash The hexadecimal hash of the content
+     * @return The path the content is stored at, whether or not the content exists, or null if the hash is not valid
+     */
+    protected File getPath(String hash) {
+        if (hash == null || hash.length() < 2 * SHARD_LEVELS) {
+            return null;
+        }
+        for (int i = 0; i < hash.length(); i++) {
+            char digit = hash.charAt(i);
+            if ((digit < '0' || digit > '9') && (digit < 'a' || digit > 'f')) {
+                Log.w(TAG, "Not a valid lowercase hexadecimal hash: "+hash);
+                return null;
+            }
+        }
+        File directory = mRoot;
+        for (int level = 0; level < SHARD_LEVELS; level++) {
+            directory = new File(directory, hash.substring(2 * level, 2 * level + 2));
+        }
+        return new File(directory, hash);
+    }
+
+    public File getRoot() {
+        return mRoot;
+    }
+
+    /**
+     * Makes stored content available at another path without copying it, by creating a hard link to the stored file.  If the file
+     * system does not support hard links, the content is copied instead.  Hard linked files share their content with the store,
+     * so they must not be modified.
+     * @param hash The hexadecimal hash of the content
+     * @param destination The path to make the content available at, which must not exist
+     * @return True if the content is available at the destination
+     */
+    public boolean linkTo(String hash, File destination) {
+        File file = getFile(hash);
+        if (file == null || destination == null) {
+            Log.w(TAG, "Cannot link content "+hash+" as it is not stored.");
+            return false;
+        }
+        FileUtils.ensureParentFoldersCreated(destination, true);
+        try {
+            Files.createLink(destination.toPath(), file.toPath());
+            return true;
+        } catch (UnsupportedOperationException uoe) {
+            Log.w(TAG, "Hard links are not supported, so copying "+hash+" to "+destination.getAbsolutePath());
+        } catch (IOException e) {
+            Log.w(TAG, "Could not link "+hash+" to "+destination.getAbsolutePath()+", so copying it instead: "+e.getMessage());
+        }
+        return FileUtils.copyFile(file, destination);
+    }
+
+    /**
+     * Removes content from the store.  Hard links to the content made by {@link #linkTo(String, File)} are not affected.
+     * @param hash The hexadecimal hash of the content
+     * @return True if the content was removed
+     */
+    public boolean remove(String hash) {
+        File file = getFile(hash);
+        return file != null && file.delete();
+    }
+
+    /**
+     * Stores the content of a file
+     * @param source The file whose content to store
+     * @return The hexadecimal hash the content is stored under, or null if it could not be stored
+     */
+    public String store(File source) {
+        if (source == null || !source.isFile()) {
+            Log.w(TAG, "Provided file is not a valid file.");
+            return null;
+        }
+        InputStream in = null;
+        try {
+            in = new FileInputStream(source);
+            return store(in);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read from file at "+source.getAbsolutePath(), e);
+            return null;
+        } finally {
+            IOUtils.safeClose(in);
+        }
+    }
+
+    /**
+     * Stores the content of a stream.  The stream is read to its end but will not be closed.
+     * @param input The stream whose content to store
+     * @return The hexadecimal hash the content is stored under, or null if it could not be stored
+     */
+    public String store(InputStream input) {
+        if (input == null) {
+            Log.w(TAG, "Not storing anything as input is invalid.");
+            return null;
+        }
+        File temporaryDirectory = new File(mRoot, TEMPORARY_DIRECTORY);
+        FileUtils.ensureParentFoldersCreated(temporaryDirectory, false);
+        File temporaryFile = null;
+        try {
+            temporaryFile = File.createTempFile("incoming", ".tmp", temporaryDirectory);
+            HashCalculatingInputStream hashingInput = new HashCalculatingInputStream(input, mAlgorithm);
+            if (!FileUtils.copyToFile(hashingInput, temporaryFile)) {
+                return null;
+            }
+            String hash = hashingInput.getHash();
+            File target = getPath(hash);
+            if (target == null) {
+                return null;
+            }
+            if (!target.isFile()) {
+                FileUtils.ensureParentFoldersCreated(target, true);
+                if (!temporaryFile.setReadOnly()) {
+                    Log.w(TAG, "Could not make content "+hash+" read-only.");
+                }
+                FileUtils.moveIntoPlace(temporaryFile, target);
+                temporaryFile = null;
+            }
+            return hash;
+        } catch (IOException e) {
+            Log.e(TAG, "Could not store content in "+mRoot.getAbsolutePath(), e);
+            return null;
+        } finally {
+            if (temporaryFile != null && temporaryFile.exists() && !temporaryFile.delete()) {
+                Log.w(TAG, "Could not delete temporary file "+temporaryFile.getAbsolutePath());
+            }
+        }
+    }
+
+    private static final String TAG = ContentAddressedStore.class.getSimpleName();
+
+    /**
+     * The number of directory levels, each named by one byte of the hash, that content is sharded into
+     */
+    protected static final int SHARD_LEVELS = 2;
+
+    /**
+     * The directory, within the root, that incoming content is written to before it is moved into place
+     */
+    protected static final String TEMPORARY_DIRECTORY = "tmp";
+}
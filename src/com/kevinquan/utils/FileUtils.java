@@ -16,15 +16,40 @@
 package com.kevinquan.utils;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.kevinquan.android.stubs.Log;
 import com.kevinquan.android.stubs.TextUtils;
@@ -36,6 +61,309 @@ import com.kevinquan.android.stubs.TextUtils;
  */
 public class FileUtils {
 
+    /**
+     * How much effort is made to ensure that written content survives a crash
+     */
+    public static enum Durability {
+        /** Leave it to the operating system to write the content to disk */
+        NONE,
+        /** Force the file's content to disk before it is made visible, as fdatasync would */
+        DATA,
+        /** Force the file's content and metadata to disk before it is made visible, then force its directory entry, as fsync would */
+        FULL
+    }
+
+    /**
+     * Produces content incrementally, so that it doesn't need to be held in memory as a single string before being written.
+     */
+    public static interface ContentWriter {
+        /**
+         * Write the content to the destination
+         * @param destination The destination to append the content to
+         * @throws IOException If the content could not be written
+         */
+        public void writeTo(Appendable destination) throws IOException;
+    }
+
+    /**
+     * The outcome of a copy operation, including how much data was copied and how long it took.
+     */
+    public static class CopyResult {
+
+        protected boolean mSuccessful;
+        protected long mBytesCopied;
+        protected long mElapsedNanos;
+
+        public CopyResult(boolean successful, long bytesCopied, long elapsedNanos) {
+            mSuccessful = successful;
+            mBytesCopied = bytesCopied;
+            mElapsedNanos = elapsedNanos;
+        }
+
+        public long getBytesCopied() {
+            return mBytesCopied;
+        }
+
+        public long getElapsedMillis() {
+            return mElapsedNanos / 1000000L;
+        }
+
+        public long getElapsedNanos() {
+            return mElapsedNanos;
+        }
+
+        public boolean isSuccessful() {
+            return mSuccessful;
+        }
+
+        @Override
+        public String toString() {
+            return "CopyResult [successful="+mSuccessful+", bytesCopied="+mBytesCopied+", elapsedMillis="+getElapsedMillis()+"]";
+        }
+    }
+
+    /**
+     * Counts of what was removed by a parallel delete.  The counters are updated concurrently while the delete is in progress.
+     */
+    public static class DeleteResult {
+
+        protected final AtomicLong mFilesDeleted = new AtomicLong();
+        protected final AtomicLong mDirectoriesDeleted = new AtomicLong();
+        protected final AtomicLong mFailures = new AtomicLong();
+
+        public long getDirectoriesDeleted() {
+            return mDirectoriesDeleted.get();
+        }
+
+        public long getFailures() {
+            return mFailures.get();
+        }
+
+        public long getFilesDeleted() {
+            return mFilesDeleted.get();
+        }
+
+        public boolean isSuccessful() {
+            return mFailures.get() == 0;
+        }
+
+        @Override
+        public String toString() {
+            return "DeleteResult [filesDeleted="+getFilesDeleted()+", directoriesDeleted="+getDirectoriesDeleted()+", failures="+getFailures()+"]";
+        }
+    }
+
+    /**
+     * Deletes the contents of a directory, forking a task for every subdirectory that is encountered.
+     */
+    protected static class DeleteDirectoryContentsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        protected final Path mDirectory;
+        protected final DeleteResult mResult;
+
+        public DeleteDirectoryContentsTask(Path directory, DeleteResult result) {
+            mDirectory = directory;
+            mResult = result;
+        }
+
+        @Override
+        protected void compute() {
+            List<DeleteDirectoryContentsTask> subtasks = new ArrayList<DeleteDirectoryContentsTask>();
+            DirectoryStream<Path> children = null;
+            try {
+                children = Files.newDirectoryStream(mDirectory);
+                for (Path child : children) {
+                    // Symbolic links are deleted rather than followed so we never leave the directory being deleted
+                    if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                        DeleteDirectoryContentsTask subtask = new DeleteDirectoryContentsTask(child, mResult);
+                        subtask.fork();
+                        subtasks.add(subtask);
+                    } else {
+                        delete(child, mResult.mFilesDeleted);
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                Log.e(TAG, "Could not list the contents of "+mDirectory, e);
+                mResult.mFailures.incrementAndGet();
+            } finally {
+                IOUtils.safeClose(children);
+            }
+            for (DeleteDirectoryContentsTask subtask : subtasks) {
+                subtask.join();
+                delete(subtask.mDirectory, mResult.mDirectoriesDeleted);
+            }
+        }
+
+        protected void delete(Path path, AtomicLong counter) {
+            try {
+                Files.delete(path);
+                counter.incrementAndGet();
+            } catch (IOException e) {
+                Log.w(TAG, "Could not delete "+path+": "+e.getMessage());
+                mResult.mFailures.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Lazily reads the lines of a file, holding only the current line in memory.  The underlying file is closed
+     * once the last line has been read, or when {@link #close()} is called.  Line terminators are not included.
+     */
+    public static class LineIterator implements Iterator<String>, Closeable {
+
+        protected BufferedReader mReader;
+        protected String mNextLine;
+        protected IOException mException;
+
+        public LineIterator(Reader reader) {
+            mReader = reader instanceof BufferedReader ? (BufferedReader)reader : new BufferedReader(reader, LINE_BUFFER_SIZE);
+        }
+
+        @Override
+        public void close() {
+            IOUtils.safeClose(mReader);
+            mReader = null;
+            mNextLine = null;
+        }
+
+        /**
+         * Retrieves the error that stopped the iteration early, if any
+         * @return The error encountered while reading, or null if the iteration has not failed
+         */
+        public IOException getException() {
+            return mException;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (mNextLine != null) {
+                return true;
+            }
+            if (mReader == null) {
+                return false;
+            }
+            try {
+                mNextLine = mReader.readLine();
+            } catch (IOException e) {
+                Log.e(TAG, "Could not read the next line", e);
+                mException = e;
+            }
+            if (mNextLine == null) {
+                close();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String line = mNextLine;
+            mNextLine = null;
+            return line;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Lines cannot be removed from a file");
+        }
+    }
+
+    /**
+     * A region of a file, in bytes, which begins at the start of a line and ends after a line break or at the end of the file.
+     */
+    public static class LineRange {
+
+        protected final long mStart;
+        protected final long mEnd;
+
+        public LineRange(long start, long end) {
+            mStart = start;
+            mEnd = end;
+        }
+
+        /**
+         * @return The offset just past the last byte in the range
+         */
+        public long getEnd() {
+            return mEnd;
+        }
+
+        public long getLength() {
+            return mEnd - mStart;
+        }
+
+        /**
+         * @return The offset of the first byte in the range
+         */
+        public long getStart() {
+            return mStart;
+        }
+
+        @Override
+        public String toString() {
+            return "LineRange [start="+mStart+", end="+mEnd+"]";
+        }
+    }
+
+    /**
+     * Limits the number of bytes that can be read from a stream
+     */
+    protected static class RangeInputStream extends FilterInputStream {
+
+        protected long mRemaining;
+
+        public RangeInputStream(InputStream in, long length) {
+            super(in);
+            mRemaining = length;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int)Math.min(super.available(), mRemaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (mRemaining <= 0) {
+                return -1;
+            }
+            int result = super.read();
+            if (result >= 0) {
+                mRemaining--;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            if (mRemaining <= 0) {
+                return -1;
+            }
+            int bytesRead = super.read(buffer, offset, (int)Math.min(count, mRemaining));
+            if (bytesRead > 0) {
+                mRemaining -= bytesRead;
+            }
+            return bytesRead;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            long skipped = super.skip(Math.min(count, mRemaining));
+            mRemaining -= skipped;
+            return skipped;
+        }
+    }
+
     /**
      * Copies a file from the source to the destination
      * @param source The path to the source file
@@ -43,24 +371,72 @@ public class FileUtils {
      * @return true if the file was successfully copied.
      */
     public static boolean copyFile(File source, File destination) {
-        if (source == null || destination == null) return false;
+        return copyFileWithResult(source, destination).isSuccessful();
+    }
+
+    /**
+     * Copies a file from the source to the destination.  When the source is a regular file, the copy is performed by the
+     * kernel through {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} so the data
+     * never passes through a Java buffer.  Otherwise the data is streamed using a buffer of {@link #DEFAULT_COPY_BUFFER_SIZE} bytes.
+     * @param source The path to the source file
+     * @param destination The path to the destination file
+     * @return The result of the copy, detailing whether it succeeded, the number of bytes copied, and the time taken
+     */
+    public static CopyResult copyFileWithResult(File source, File destination) {
+        long startTime = System.nanoTime();
+        if (source == null || destination == null) return new CopyResult(false, 0, 0);
         if (!source.exists()) {
             Log.w(TAG, "The source file doesn't exist so we can't copy it!");
-            return false;
+            return new CopyResult(false, 0, 0);
         }
-        boolean result = false;
-        try {
-            InputStream in = new FileInputStream(source);
+        if (!source.isFile()) {
+            // Special files (pipes, devices) don't report a meaningful size, so stream them instead
+            InputStream in = null;
             try {
-                result = copyToFile(in, destination);
-            } finally  {
-                in.close();
+                in = new FileInputStream(source);
+                return copyToFileWithResult(in, destination, DEFAULT_COPY_BUFFER_SIZE);
+            } catch (IOException e) {
+                Log.e(TAG, "Could not copy file: "+e.getMessage(), e);
+                return new CopyResult(false, 0, System.nanoTime()-startTime);
+            } finally {
+                IOUtils.safeClose(in);
             }
+        }
+        FileInputStream in = null;
+        FileOutputStream out = null;
+        long bytesCopied = 0;
+        try {
+            in = new FileInputStream(source);
+            out = new FileOutputStream(destination);
+            FileChannel inChannel = in.getChannel();
+            bytesCopied = transferFully(inChannel, 0, inChannel.size(), out.getChannel());
+            out.flush();
         } catch (IOException e) {
             Log.e(TAG, "Could not copy file: "+e.getMessage(), e);
-            return false;
+            return new CopyResult(false, bytesCopied, System.nanoTime()-startTime);
+        } finally {
+            IOUtils.safeClose(in);
+            IOUtils.safeClose(out);
+        }
+        return new CopyResult(true, bytesCopied, System.nanoTime()-startTime);
+    }
+
+    /**
+     * Gives a file the same POSIX permissions as another, e.g., so that replacing a file keeps it executable or private.  Nothing is
+     * copied if the source doesn't exist or the file system doesn't support POSIX permissions.
+     * @param source The file to copy the permissions of
+     * @param destination The file to give the permissions to
+     * @throws IOException If the permissions could not be read or set
+     */
+    protected static void copyPermissions(File source, File destination) throws IOException {
+        if (!source.exists()) {
+            return;
+        }
+        try {
+            Files.setPosixFilePermissions(destination.toPath(), Files.getPosixFilePermissions(source.toPath()));
+        } catch (UnsupportedOperationException e) {
+            // The file system has no POSIX permissions to keep
         }
-        return result;
     }
 
     /**
@@ -70,24 +446,46 @@ public class FileUtils {
      * @return True if the stream was written out to the destination file successfully.
      */
     public static boolean copyToFile(InputStream inputStream, File destination) {
-        if (inputStream == null || destination == null) return false;
+        return copyToFileWithResult(inputStream, destination, DEFAULT_COPY_BUFFER_SIZE).isSuccessful();
+    }
+
+    /**
+     * Write out data from a source stream to a destination file.  The source stream will not be closed.
+     * If the source stream is a {@link FileInputStream}, the remainder of its file is transferred by the kernel
+     * and the stream is left positioned at the end of the file.
+     * @param inputStream The input stream to write out
+     * @param destination The destination file to write to
+     * @param bufferSize The size of the buffer used when the data has to be streamed
+     * @return The result of the copy, detailing whether it succeeded, the number of bytes copied, and the time taken
+     */
+    public static CopyResult copyToFileWithResult(InputStream inputStream, File destination, int bufferSize) {
+        long startTime = System.nanoTime();
+        if (inputStream == null || destination == null) return new CopyResult(false, 0, 0);
+        long bytesCopied = 0;
+        FileOutputStream out = null;
         try {
-            OutputStream out = new FileOutputStream(destination);
-            try {
-                byte[] buffer = new byte[4096];
+            out = new FileOutputStream(destination);
+            FileChannel inChannel = inputStream instanceof FileInputStream ? ((FileInputStream)inputStream).getChannel() : null;
+            if (inChannel != null && inChannel.size() > 0) {
+                long position = inChannel.position();
+                bytesCopied = transferFully(inChannel, position, inChannel.size()-position, out.getChannel());
+                inChannel.position(position+bytesCopied);
+            } else {
+                byte[] buffer = new byte[Math.max(1, bufferSize)];
                 int bytesRead;
                 while ((bytesRead = inputStream.read(buffer)) >= 0) {
                     out.write(buffer, 0, bytesRead);
+                    bytesCopied += bytesRead;
                 }
-                out.flush();
-            } finally {
-                out.close();
             }
-            return true;
+            out.flush();
         } catch (IOException e) {
             Log.e(TAG, "Could not write stream to file: "+e.getMessage(), e);
-            return false;
+            return new CopyResult(false, bytesCopied, System.nanoTime()-startTime);
+        } finally {
+            IOUtils.safeClose(out);
         }
+        return new CopyResult(true, bytesCopied, System.nanoTime()-startTime);
     }
 
     /**
@@ -116,6 +514,35 @@ public class FileUtils {
         return result;
     }
 
+    /**
+     * Delete all files within a directory, deleting subdirectories in parallel on the shared fork/join pool.
+     * Unlike {@link #deleteAllFilesInDirectory(File)}, symbolic links to directories are removed rather than followed.
+     * @param directory The directory whose files need to be deleted
+     * @return True if the files are deleted
+     */
+    public static boolean deleteAllFilesInDirectoryInParallel(File directory) {
+        return deleteAllFilesInDirectoryInParallel(directory, ConcurrencyUtils.getSharedForkJoinPool()).isSuccessful();
+    }
+
+    /**
+     * Delete all files within a directory, deleting subdirectories in parallel.
+     * Unlike {@link #deleteAllFilesInDirectory(File)}, symbolic links to directories are removed rather than followed.
+     * @param directory The directory whose files need to be deleted
+     * @param pool The pool to run the deletion on
+     * @return Counts of the files and directories removed and of the entries that could not be removed.  If the
+     *          directory is not valid, a single failure is reported.
+     */
+    public static DeleteResult deleteAllFilesInDirectoryInParallel(File directory, ForkJoinPool pool) {
+        DeleteResult result = new DeleteResult();
+        if (directory == null || !directory.isDirectory() || pool == null) {
+            Log.w(TAG, "Could not delete directory: "+directory);
+            result.mFailures.incrementAndGet();
+            return result;
+        }
+        pool.invoke(new DeleteDirectoryContentsTask(directory.toPath(), result));
+        return result;
+    }
+
     /**
      * Ensures that the path to the file has all of its parent directories created.
      * @param aFile A path to a file or folder whose parent directories we want to be created
@@ -135,7 +562,108 @@ public class FileUtils {
     }
 
     /**
-     * Reads a target file and as a String
+     * Finds the first line start at or after the provided position
+     * @param channel The channel to search
+     * @param position The position to start searching from
+     * @param length The length of the channel
+     * @param buffer A buffer to read into while searching
+     * @return The offset of the start of the line, or the length of the channel if there are no further lines
+     * @throws IOException If the channel could not be read
+     */
+    protected static long findNextLineStart(FileChannel channel, long position, long length, ByteBuffer buffer) throws IOException {
+        // A line starts at the position itself if the preceding byte is a line break
+        long offset = Math.max(0, position-1);
+        while (offset < length) {
+            buffer.clear();
+            int bytesRead = channel.read(buffer, offset);
+            if (bytesRead <= 0) {
+                break;
+            }
+            for (int i = 0; i < bytesRead; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset+i+1;
+                }
+            }
+            offset += bytesRead;
+        }
+        return length;
+    }
+
+    /**
+     * Forces a directory's entries to disk.  Not all platforms allow a directory to be opened, in which case nothing is done.
+     * @param directory The directory to force
+     */
+    protected static void forceDirectory(File directory) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+            channel.force(true);
+        } catch (IOException squelched) {
+        } finally {
+            IOUtils.safeClose(channel);
+        }
+    }
+
+    /**
+     * Lazily iterates over the lines of a file without reading the whole file into memory.
+     * @param inputFile The file to read from
+     * @param charset The charset the file is encoded in
+     * @return An iterator over the lines of the file, or null if the file could not be opened.  The iterator should be
+     *          closed if it is abandoned before all lines have been read.
+     */
+    public static LineIterator iterateLines(File inputFile, Charset charset) {
+        if (inputFile == null || !inputFile.isFile() || charset == null) {
+            Log.w(TAG, "Provided file is not a valid file.");
+            return null;
+        }
+        return iterateLines(inputFile, charset, new LineRange(0, inputFile.length()));
+    }
+
+    /**
+     * Lazily iterates over the lines within a region of a file, as produced by {@link #splitOnLineBoundaries(File, int)}.
+     * Each range can be iterated on a separate thread.
+     * @param inputFile The file to read from
+     * @param charset The charset the file is encoded in
+     * @param range The region of the file to read
+     * @return An iterator over the lines in the region, or null if the file could not be opened.  The iterator should be
+     *          closed if it is abandoned before all lines have been read.
+     */
+    public static LineIterator iterateLines(File inputFile, Charset charset, LineRange range) {
+        if (inputFile == null || !inputFile.isFile() || charset == null || range == null) {
+            Log.w(TAG, "Provided file is not a valid file.");
+            return null;
+        }
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(inputFile);
+            in.getChannel().position(range.getStart());
+            return new LineIterator(new InputStreamReader(new RangeInputStream(in, range.getLength()), charset));
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read from file at "+inputFile.getAbsolutePath(), e);
+            IOUtils.safeClose(in);
+            return null;
+        }
+    }
+
+    /**
+     * Renames a file over a target, atomically if the file system supports it
+     * @param source The file to rename
+     * @param target The destination of the file
+     * @throws IOException If the file could not be moved
+     */
+    protected static void moveIntoPlace(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Log.w(TAG, "Atomic moves are not supported when writing to "+target.getAbsolutePath());
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a target file and as a String.  The file is read line by line using the platform charset, and every line
+     * break is replaced with {@link TextUtils#LINE_BREAK}.  Use {@link #readFileToString(File, Charset)} to read the
+     * content exactly as it is stored.
      * @param inputFile The file to read from
      * @return The read string, or null if it could not be read.
      */
@@ -168,6 +696,98 @@ public class FileUtils {
         return resultBuilder.toString();
     }
 
+    /**
+     * Reads a target file as a String, decoding its bytes directly with the provided charset.  Line breaks are
+     * preserved as they are stored.  The file is read into a single array sized from the file length and decoded from it, so
+     * reading it takes about as much heap as the file's size plus the resulting String, without the line by line copies of
+     * {@link #readFileToString(File)}.  Malformed input is replaced with the charset's replacement character.
+     * @param inputFile The file to read from
+     * @param charset The charset the file is encoded in
+     * @return The read string, or null if it could not be read.
+     */
+    public static String readFileToString(File inputFile, Charset charset) {
+        if (inputFile == null || !inputFile.isFile() || charset == null) {
+            Log.w(TAG, "Provided file is not a valid file.");
+            return null;
+        }
+        long length = inputFile.length();
+        if (length > Integer.MAX_VALUE) {
+            Log.w(TAG, "File at "+inputFile.getAbsolutePath()+" is too large to be read into a String.");
+            return null;
+        }
+        try {
+            return new String(Files.readAllBytes(inputFile.toPath()), charset);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read from file at "+inputFile.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Splits a file into roughly equal regions which each begin at the start of a line, so that the lines of a large file can
+     * be processed in parallel with {@link #iterateLines(File, Charset, LineRange)}.  Line breaks are located by searching for
+     * 0x0A bytes, so the file must be in a charset which encodes '\n' as that single byte, and never uses that byte for anything
+     * else (such as UTF-8, ISO-8859-1 or US-ASCII).  Files in charsets such as UTF-16, where '\n' is two bytes and 0x0A also
+     * appears within other characters, will be split in the wrong places.
+     * @param inputFile The file to split
+     * @param parts The desired number of regions.  Fewer regions are returned if the file has too few lines.
+     * @return The regions of the file in order, or an empty list if the file could not be read
+     */
+    public static List<LineRange> splitOnLineBoundaries(File inputFile, int parts) {
+        List<LineRange> ranges = new ArrayList<LineRange>();
+        if (inputFile == null || !inputFile.isFile()) {
+            Log.w(TAG, "Provided file is not a valid file.");
+            return ranges;
+        }
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(inputFile);
+            FileChannel channel = in.getChannel();
+            long length = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(LINE_BUFFER_SIZE);
+            long start = 0;
+            for (int i = 1; i < parts && start < length; i++) {
+                long boundary = findNextLineStart(channel, Math.max(start, length / parts * i), length, buffer);
+                if (boundary > start) {
+                    ranges.add(new LineRange(start, boundary));
+                    start = boundary;
+                }
+            }
+            if (start < length) {
+                ranges.add(new LineRange(start, length));
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read from file at "+inputFile.getAbsolutePath(), e);
+            ranges.clear();
+        } finally {
+            IOUtils.safeClose(in);
+        }
+        return ranges;
+    }
+
+    /**
+     * Transfers a region of one file channel into another, looping until the region is exhausted as a single
+     * transfer may move fewer bytes than requested.
+     * @param source The channel to read from
+     * @param position The position within the source to start reading from
+     * @param count The maximum number of bytes to transfer
+     * @param destination The channel to write to
+     * @return The number of bytes transferred, which may be less than count if the source is shorter than expected
+     * @throws IOException If the transfer fails
+     */
+    protected static long transferFully(FileChannel source, long position, long count, FileChannel destination) throws IOException {
+        long transferred = 0;
+        while (transferred < count) {
+            long bytes = source.transferTo(position+transferred, Math.min(count-transferred, MAX_TRANSFER_SIZE), destination);
+            if (bytes <= 0) {
+                // The source has been truncated since we determined its size
+                break;
+            }
+            transferred += bytes;
+        }
+        return transferred;
+    }
+
     /**
      * Saves a string representation of an object to the provided destination.
      * @param outputFile The destination file to write to
@@ -194,5 +814,122 @@ public class FileUtils {
         }
     }
 
+    /**
+     * Writes text to the provided destination so that the destination either keeps its previous content or has all of the new
+     * content, even if the process or system crashes part way through.  The text is encoded in chunks into a temporary file in
+     * the same directory, which is then renamed over the destination.
+     * @param outputFile The destination file to write to
+     * @param content The text to write.  It is read in chunks rather than converted to a single String.
+     * @param charset The charset to encode the text with
+     * @param durability How much effort to make to ensure the content is on disk before it becomes visible
+     * @return True if the write succeeded
+     */
+    public static boolean writeContentToFileAtomically(File outputFile, final CharSequence content, Charset charset, Durability durability) {
+        if (content == null) {
+            Log.w(TAG, "Not writing anything as input is invalid.");
+            return false;
+        }
+        return writeContentToFileAtomically(outputFile, new ContentWriter() {
+            @Override
+            public void writeTo(Appendable destination) throws IOException {
+                if (!(destination instanceof Writer)) {
+                    destination.append(content);
+                    return;
+                }
+                Writer writer = (Writer)destination;
+                char[] chunk = new char[Math.min(content.length(), DEFAULT_ENCODER_BUFFER_SIZE)];
+                for (int start = 0; start < content.length(); start += chunk.length) {
+                    int end = Math.min(start+chunk.length, content.length());
+                    if (content instanceof String) {
+                        ((String)content).getChars(start, end, chunk, 0);
+                    } else {
+                        for (int i = start; i < end; i++) {
+                            chunk[i-start] = content.charAt(i);
+                        }
+                    }
+                    writer.write(chunk, 0, end-start);
+                }
+            }
+        }, charset, durability, DEFAULT_ENCODER_BUFFER_SIZE);
+    }
+
+    /**
+     * Writes content to the provided destination so that the destination either keeps its previous content or has all of the new
+     * content, even if the process or system crashes part way through.  The content is encoded through a buffer of the provided
+     * size into a temporary file in the same directory, which is then renamed over the destination.  If the destination exists, its
+     * POSIX permissions are copied to the temporary file first, but its owner and group are not kept.
+     * @param outputFile The destination file to write to
+     * @param content The producer of the content to write
+     * @param charset The charset to encode the content with
+     * @param durability How much effort to make to ensure the content is on disk before it becomes visible
+     * @param bufferSize The minimum size of the buffer the encoded content is written from
+     * @return True if the write succeeded
+     */
+    public static boolean writeContentToFileAtomically(File outputFile, ContentWriter content, Charset charset, Durability durability, int bufferSize) {
+        if (outputFile == null || content == null || charset == null || durability == null) {
+            Log.w(TAG, "Not writing anything as input is invalid.");
+            return false;
+        }
+        FileUtils.ensureParentFoldersCreated(outputFile, true);
+        File directory = outputFile.getAbsoluteFile().getParentFile();
+        File temporaryFile = null;
+        FileChannel channel = null;
+        Writer writer = null;
+        try {
+            CharsetEncoder encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            temporaryFile = File.createTempFile("."+outputFile.getName()+".", ".tmp", directory);
+            channel = new FileOutputStream(temporaryFile).getChannel();
+            // The rename replaces the destination's permissions with the temporary file's, so keep them before writing any content
+            copyPermissions(outputFile, temporaryFile);
+            writer = Channels.newWriter(channel, encoder, Math.max(1, bufferSize));
+            content.writeTo(writer);
+            writer.flush();
+            if (durability != Durability.NONE) {
+                channel.force(durability == Durability.FULL);
+            }
+            writer.close();
+            writer = null;
+            moveIntoPlace(temporaryFile, outputFile);
+            temporaryFile = null;
+            if (durability == Durability.FULL) {
+                forceDirectory(directory);
+            }
+            Log.d(TAG, "Content written to "+outputFile.getAbsolutePath());
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Could not output content to "+outputFile.getAbsolutePath(), e);
+            return false;
+        } finally {
+            IOUtils.safeClose(writer);
+            // The writer may never have been created, in which case closing it wouldn't close the channel
+            IOUtils.safeClose(channel);
+            if (temporaryFile != null && temporaryFile.exists() && !temporaryFile.delete()) {
+                Log.w(TAG, "Could not delete temporary file "+temporaryFile.getAbsolutePath());
+            }
+        }
+    }
+
     private static final String TAG = FileUtils.class.getSimpleName();
+
+    /**
+     * The buffer size used when data has to be streamed rather than transferred between channels
+     */
+    public static final int DEFAULT_COPY_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The size of the buffers used when reading files line by line
+     */
+    protected static final int LINE_BUFFER_SIZE = 8192;
+
+    /**
+     * The size of the encoder buffer used when writing content atomically
+     */
+    public static final int DEFAULT_ENCODER_BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * The maximum number of bytes handed to a single channel transfer, as some platforms fail on very large transfers
+     */
+    protected static final long MAX_TRANSFER_SIZE = 64L * 1024 * 1024;
 }
@@ -15,6 +15,7 @@
  */
 package com.kevinquan.utils;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -29,6 +30,19 @@ import java.util.zip.ZipFile;
  */
 public class IOUtils {
 
+    /**
+     * Close any closeable resource if necessary.  Exceptions are squelched
+     * @param closeable The resource to close
+     */
+    public static void safeClose(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException squelched) {}
+    }
+
 	/**
 	 * Close an inputstream if necessary.  Exceptions are squelched
 	 * @param stream The stream to close
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2015 Kevin Quan (kevin.quan@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kevinquan.utils;
+
+import java.util.Arrays;
+
+/**
+ * A map from primitive ints to primitive ints, which unlike a Map&lt;Integer, Integer&gt; doesn't box keys or values.  Entries are
+ * kept in arrays using open addressing with linear probing, so there is no object per entry either.  It is not thread safe.
+ * @author Kevin Quan (kevin.quan@gmail.com)
+ *
+ */
+public class IntIntMap {
+
+    /**
+     * Receives the entries of a map without boxing them
+     */
+    public interface Visitor {
+        void visit(int key, int value);
+    }
+
+    /** Slots holding {@link #EMPTY_KEY} are free, so an entry with that key is kept outside the arrays */
+    protected int[] mKeys;
+    protected int[] mValues;
+    protected int mMask;
+    protected int mSize;
+    protected int mResizeThreshold;
+    protected boolean mHasEmptyKey;
+    protected int mEmptyKeyValue;
+
+    public IntIntMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity The number of entries the map can hold before it needs to grow
+     */
+    public IntIntMap(int capacity) {
+        allocate(getTableSize(capacity));
+    }
+
+    /**
+     * Creates the arrays, discarding any entries in them
+     * @param tableSize The number of slots, which is a power of two
+     */
+    protected void allocate(int tableSize) {
+        mKeys = new int[tableSize];
+        mValues = new int[tableSize];
+        mMask = tableSize - 1;
+        mResizeThreshold = (int)(tableSize * MAX_LOAD_FACTOR);
+    }
+
+    /**
+     * Removes all entries, keeping the capacity
+     */
+    public void clear() {
+        Arrays.fill(mKeys, EMPTY_KEY);
+        mSize = 0;
+        mHasEmptyKey = false;
+    }
+
+    public boolean containsKey(int key) {
+        if (key == EMPTY_KEY) {
+            return mHasEmptyKey;
+        }
+        return mKeys[findSlot(key)] != EMPTY_KEY;
+    }
+
+    /**
+     * Finds the slot holding a key, or the free slot where it would be added
+     * @param key The key, which must not be {@link #EMPTY_KEY}
+     * @return The slot
+     */
+    protected int findSlot(int key) {
+        int slot = hash(key) & mMask;
+        while (mKeys[slot] != EMPTY_KEY && mKeys[slot] != key) {
+            slot = (slot + 1) & mMask;
+        }
+        return slot;
+    }
+
+    /**
+     * Passes every entry to a visitor, in no particular order.  The map must not be modified while it is visited.
+     * @param visitor The visitor
+     */
+    public void forEach(Visitor visitor) {
+        if (mHasEmptyKey) {
+            visitor.visit(EMPTY_KEY, mEmptyKeyValue);
+        }
+        for (int slot = 0; slot < mKeys.length; slot++) {
+            if (mKeys[slot] != EMPTY_KEY) {
+                visitor.visit(mKeys[slot], mValues[slot]);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the value of a key
+     * @param key The key
+     * @param defaultValue The value to return if the key is not in the map
+     * @return The value, or the default value
+     */
+    public int get(int key, int defaultValue) {
+        if (key == EMPTY_KEY) {
+            return mHasEmptyKey ? mEmptyKeyValue : defaultValue;
+        }
+        int slot = findSlot(key);
+        return mKeys[slot] != EMPTY_KEY ? mValues[slot] : defaultValue;
+    }
+
+    /**
+     * Adds to the value of a key, as when counting occurrences, treating a key that is not in the map as having a value of 0
+     * @param key The key
+     * @param delta The amount to add
+     * @return The new value
+     */
+    public int increment(int key, int delta) {
+        if (key == EMPTY_KEY) {
+            mEmptyKeyValue = mHasEmptyKey ? mEmptyKeyValue + delta : delta;
+            if (!mHasEmptyKey) {
+                mHasEmptyKey = true;
+                mSize++;
+            }
+            return mEmptyKeyValue;
+        }
+        int slot = findSlot(key);
+        if (mKeys[slot] != EMPTY_KEY) {
+            mValues[slot] += delta;
+            return mValues[slot];
+        }
+        insert(slot, key, delta);
+        return delta;
+    }
+
+    /**
+     * Adds a new entry at a free slot, growing the map if it is now too full
+     * @param slot The free slot found for the key
+     * @param key The key
+     * @param value The value
+     */
+    protected void insert(int slot, int key, int value) {
+        if (mSize >= mMask) {
+            throw new IllegalStateException("The map cannot hold more than "+mMask+" entries");
+        }
+        mKeys[slot] = key;
+        mValues[slot] = value;
+        if (++mSize > mResizeThreshold && mKeys.length < MAX_TABLE_SIZE) {
+            rehash(mKeys.length << 1);
+        }
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * Copies the keys into an array
+     * @return The keys, in no particular order
+     */
+    public int[] keys() {
+        int[] keys = new int[mSize];
+        int index = 0;
+        if (mHasEmptyKey) {
+            keys[index++] = EMPTY_KEY;
+        }
+        for (int slot = 0; slot < mKeys.length; slot++) {
+            if (mKeys[slot] != EMPTY_KEY) {
+                keys[index++] = mKeys[slot];
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Sets the value of a key
+     * @param key The key
+     * @param value The value
+     */
+    public void put(int key, int value) {
+        if (key == EMPTY_KEY) {
+            mEmptyKeyValue = value;
+            if (!mHasEmptyKey) {
+                mHasEmptyKey = true;
+                mSize++;
+            }
+            return;
+        }
+        int slot = findSlot(key);
+        if (mKeys[slot] != EMPTY_KEY) {
+            mValues[slot] = value;
+        } else {
+            insert(slot, key, value);
+        }
+    }
+
+    /**
+     * Moves the entries into arrays of a new size
+     * @param tableSize The new number of slots, which is a power of two
+     */
+    protected void rehash(int tableSize) {
+        int[] keys = mKeys;
+        int[] values = mValues;
+        allocate(tableSize);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY_KEY) {
+                int newSlot = findSlot(keys[slot]);
+                mKeys[newSlot] = keys[slot];
+                mValues[newSlot] = values[slot];
+            }
+        }
+    }
+
+    /**
+     * Removes a key.  The entries after it in its run of slots are shifted back, so that no tombstones are needed.
+     * @param key The key
+     * @return True if the key was in the map
+     */
+    public boolean remove(int key) {
+        if (key == EMPTY_KEY) {
+            if (!mHasEmptyKey) {
+                return false;
+            }
+            mHasEmptyKey = false;
+            mSize--;
+            return true;
+        }
+        int slot = findSlot(key);
+        if (mKeys[slot] == EMPTY_KEY) {
+            return false;
+        }
+        int next = (slot + 1) & mMask;
+        while (mKeys[next] != EMPTY_KEY) {
+            int ideal = hash(mKeys[next]) & mMask;
+            // The entry can move back to the free slot unless its ideal slot lies after the free slot, up to where it is
+            boolean stays = slot <= next ? (slot < ideal && ideal <= next) : (slot < ideal || ideal <= next);
+            if (!stays) {
+                mKeys[slot] = mKeys[next];
+                mValues[slot] = mValues[next];
+                slot = next;
+            }
+            next = (next + 1) & mMask;
+        }
+        mKeys[slot] = EMPTY_KEY;
+        mSize--;
+        return true;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder().append('{');
+        forEach(new Visitor() {
+            @Override
+            public void visit(int key, int value) {
+                if (builder.length() > 1) {
+                    builder.append(", ");
+                }
+                builder.append(key).append('=').append(value);
+            }
+        });
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Determines how many slots are needed to hold a number of entries
+     * @param capacity The number of entries
+     * @return The number of slots, which is a power of two
+     */
+    protected static int getTableSize(int capacity) {
+        long required = (long)Math.ceil(Math.max(capacity, 1) / MAX_LOAD_FACTOR) + 1;
+        if (required > MAX_TABLE_SIZE) {
+            return MAX_TABLE_SIZE;
+        }
+        return Integer.highestOneBit((int)required - 1) << 1;
+    }
+
+    /**
+     * Scrambles a key so that keys that differ in only their high bits, or follow a pattern, are spread over the slots
+     * @param key The key
+     * @return The scrambled key
+     */
+    protected static int hash(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    @SuppressWarnings("unused")
+    private static final String TAG = IntIntMap.class.getSimpleName();
+
+    public static final int DEFAULT_CAPACITY = 16;
+
+    protected static final int EMPTY_KEY = 0;
+
+    /**
+     * The fraction of slots that may be used before the map grows, which keeps runs of occupied slots short
+     */
+    protected static final float MAX_LOAD_FACTOR = 0.5f;
+
+    protected static final int MAX_TABLE_SIZE = 1 << 30;
+}
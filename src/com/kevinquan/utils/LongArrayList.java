@@ -0,0 +1,262 @@
+/*
+ * Copyright 2015 Kevin Quan (kevin.quan@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kevinquan.utils;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive longs, which unlike a List&lt;Long&gt; doesn't box values when they are added or read.
+ * Values are read by index, e.g., <code>for (int i = 0; i &lt; list.size(); i++) { list.get(i); }</code>.  It is not thread safe.
+ * @author Kevin Quan (kevin.quan@gmail.com)
+ *
+ */
+public class LongArrayList {
+
+    protected long[] mValues;
+    protected int mSize;
+
+    public LongArrayList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity The number of values the list can hold before it needs to grow
+     */
+    public LongArrayList(int capacity) {
+        mValues = new long[Math.max(0, capacity)];
+    }
+
+    /**
+     * Creates a list holding a copy of the provided values
+     * @param values The values
+     */
+    public LongArrayList(long[] values) {
+        this(values == null ? new long[0] : values.clone(), values == null ? 0 : values.length);
+    }
+
+    /**
+     * Creates a list backed by the provided array, which is not copied
+     * @param values The array to use, which the list now owns
+     * @param size The number of values in use in the array
+     */
+    protected LongArrayList(long[] values, int size) {
+        mValues = values;
+        mSize = size;
+    }
+
+    public void add(long value) {
+        if (mSize == mValues.length) {
+            grow(mSize + 1);
+        }
+        mValues[mSize++] = value;
+    }
+
+    /**
+     * Inserts a value, shifting the value at the index and those after it along by one
+     * @param index The index to insert the value at
+     * @param value The value
+     */
+    public void add(int index, long value) {
+        if (index < 0 || index > mSize) {
+            throw new IndexOutOfBoundsException("Index "+index+" is outside a list of size "+mSize);
+        }
+        if (mSize == mValues.length) {
+            grow(mSize + 1);
+        }
+        System.arraycopy(mValues, index, mValues, index + 1, mSize - index);
+        mValues[index] = value;
+        mSize++;
+    }
+
+    public void addAll(long[] values) {
+        if (values == null || values.length == 0) {
+            return;
+        }
+        ensureCapacity(mSize + values.length);
+        System.arraycopy(values, 0, mValues, mSize, values.length);
+        mSize += values.length;
+    }
+
+    public void addAll(LongArrayList values) {
+        if (values == null || values.mSize == 0) {
+            return;
+        }
+        ensureCapacity(mSize + values.mSize);
+        System.arraycopy(values.mValues, 0, mValues, mSize, values.mSize);
+        mSize += values.mSize;
+    }
+
+    /**
+     * Removes all values, keeping the capacity
+     */
+    public void clear() {
+        mSize = 0;
+    }
+
+    public boolean contains(long value) {
+        return indexOf(value) >= 0;
+    }
+
+    /**
+     * Grows the list if necessary so it can hold a number of values without growing again
+     * @param capacity The number of values
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > mValues.length) {
+            grow(capacity);
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof LongArrayList)) {
+            return false;
+        }
+        LongArrayList otherList = (LongArrayList)other;
+        if (mSize != otherList.mSize) {
+            return false;
+        }
+        for (int i = 0; i < mSize; i++) {
+            if (mValues[i] != otherList.mValues[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long get(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index "+index+" is outside a list of size "+mSize);
+        }
+        return mValues[index];
+    }
+
+    /**
+     * Grows the backing array by half again, or to the required capacity if that is larger
+     * @param capacity The required capacity
+     */
+    protected void grow(int capacity) {
+        if (capacity < 0 || capacity > MAX_ARRAY_SIZE) {
+            throw new OutOfMemoryError("Cannot grow a list to hold "+capacity+" values");
+        }
+        long grown = mValues.length + (mValues.length >> 1) + 1L;
+        mValues = Arrays.copyOf(mValues, (int)Math.max(capacity, Math.min(grown, MAX_ARRAY_SIZE)));
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < mSize; i++) {
+            hash = 31 * hash + (int)(mValues[i] ^ (mValues[i] >>> 32));
+        }
+        return hash;
+    }
+
+    /**
+     * Finds the first occurrence of a value
+     * @param value The value
+     * @return The index of the value, or -1 if it is not in the list
+     */
+    public int indexOf(long value) {
+        for (int i = 0; i < mSize; i++) {
+            if (mValues[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * Removes the value at an index, shifting the values after it back by one
+     * @param index The index
+     * @return The value that was removed
+     */
+    public long removeAt(int index) {
+        long value = get(index);
+        System.arraycopy(mValues, index + 1, mValues, index, mSize - index - 1);
+        mSize--;
+        return value;
+    }
+
+    /**
+     * Replaces the value at an index
+     * @param index The index
+     * @param value The new value
+     * @return The value that was replaced
+     */
+    public long set(int index, long value) {
+        long previous = get(index);
+        mValues[index] = value;
+        return previous;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Copies the values into an array
+     * @return An array of the values, which the list doesn't use
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(mValues, mSize);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder().append('[');
+        for (int i = 0; i < mSize; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(mValues[i]);
+        }
+        return builder.append(']').toString();
+    }
+
+    /**
+     * Shrinks the backing array to the number of values in the list
+     */
+    public void trimToSize() {
+        if (mValues.length > mSize) {
+            mValues = Arrays.copyOf(mValues, mSize);
+        }
+    }
+
+    /**
+     * Creates a list of the values of an array of {@link Long} objects, using {@link PrimitiveUtils#asPrimitive(Long[])}
+     * @param values The values
+     * @return A list of the values
+     */
+    public static LongArrayList valueOf(Long[] values) {
+        long[] primitiveValues = PrimitiveUtils.asPrimitive(values);
+        return new LongArrayList(primitiveValues, primitiveValues.length);
+    }
+
+    @SuppressWarnings("unused")
+    private static final String TAG = LongArrayList.class.getSimpleName();
+
+    public static final int DEFAULT_CAPACITY = 10;
+
+    protected static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+}
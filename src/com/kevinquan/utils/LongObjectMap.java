@@ -0,0 +1,239 @@
+/*
+ * Copyright 2015 Kevin Quan (kevin.quan@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kevinquan.utils;
+
+import java.util.Arrays;
+
+/**
+ * A map from primitive longs to objects, which unlike a Map&lt;Long, V&gt; doesn't box keys.  Entries are kept in arrays using
+ * open addressing with linear probing, so there is no object per entry either.  Null values are not supported: a slot with a null
+ * value is free, and putting a null value removes the key.  It is not thread safe.
+ * @param <V> The type of the values
+ * @author Kevin Quan (kevin.quan@gmail.com)
+ *
+ */
+public class LongObjectMap<V> {
+
+    /**
+     * Receives the entries of a map without boxing the keys
+     */
+    public interface Visitor<V> {
+        void visit(long key, V value);
+    }
+
+    protected long[] mKeys;
+    protected Object[] mValues;
+    protected int mMask;
+    protected int mSize;
+    protected int mResizeThreshold;
+
+    public LongObjectMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity The number of entries the map can hold before it needs to grow
+     */
+    public LongObjectMap(int capacity) {
+        allocate(IntIntMap.getTableSize(capacity));
+    }
+
+    /**
+     * Creates the arrays, discarding any entries in them
+     * @param tableSize The number of slots, which is a power of two
+     */
+    protected void allocate(int tableSize) {
+        mKeys = new long[tableSize];
+        mValues = new Object[tableSize];
+        mMask = tableSize - 1;
+        mResizeThreshold = (int)(tableSize * IntIntMap.MAX_LOAD_FACTOR);
+    }
+
+    /**
+     * Removes all entries, keeping the capacity
+     */
+    public void clear() {
+        Arrays.fill(mValues, null);
+        mSize = 0;
+    }
+
+    public boolean containsKey(long key) {
+        return mValues[findSlot(key)] != null;
+    }
+
+    /**
+     * Finds the slot holding a key, or the free slot where it would be added
+     * @param key The key
+     * @return The slot
+     */
+    protected int findSlot(long key) {
+        int slot = hash(key) & mMask;
+        while (mValues[slot] != null && mKeys[slot] != key) {
+            slot = (slot + 1) & mMask;
+        }
+        return slot;
+    }
+
+    /**
+     * Passes every entry to a visitor, in no particular order.  The map must not be modified while it is visited.
+     * @param visitor The visitor
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitor<? super V> visitor) {
+        for (int slot = 0; slot < mKeys.length; slot++) {
+            if (mValues[slot] != null) {
+                visitor.visit(mKeys[slot], (V)mValues[slot]);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the value of a key
+     * @param key The key
+     * @return The value, or null if the key is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        return (V)mValues[findSlot(key)];
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * Copies the keys into an array
+     * @return The keys, in no particular order
+     */
+    public long[] keys() {
+        long[] keys = new long[mSize];
+        int index = 0;
+        for (int slot = 0; slot < mKeys.length; slot++) {
+            if (mValues[slot] != null) {
+                keys[index++] = mKeys[slot];
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Sets the value of a key
+     * @param key The key
+     * @param value The value, or null to remove the key
+     * @return The previous value, or null if the key was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            return remove(key);
+        }
+        int slot = findSlot(key);
+        V previous = (V)mValues[slot];
+        if (previous != null) {
+            mValues[slot] = value;
+            return previous;
+        }
+        if (mSize >= mMask) {
+            throw new IllegalStateException("The map cannot hold more than "+mMask+" entries");
+        }
+        mKeys[slot] = key;
+        mValues[slot] = value;
+        if (++mSize > mResizeThreshold && mKeys.length < IntIntMap.MAX_TABLE_SIZE) {
+            rehash(mKeys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Moves the entries into arrays of a new size
+     * @param tableSize The new number of slots, which is a power of two
+     */
+    protected void rehash(int tableSize) {
+        long[] keys = mKeys;
+        Object[] values = mValues;
+        allocate(tableSize);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != null) {
+                int newSlot = findSlot(keys[slot]);
+                mKeys[newSlot] = keys[slot];
+                mValues[newSlot] = values[slot];
+            }
+        }
+    }
+
+    /**
+     * Removes a key.  The entries after it in its run of slots are shifted back, so that no tombstones are needed.
+     * @param key The key
+     * @return The value of the key, or null if the key was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int slot = findSlot(key);
+        V removed = (V)mValues[slot];
+        if (removed == null) {
+            return null;
+        }
+        int next = (slot + 1) & mMask;
+        while (mValues[next] != null) {
+            int ideal = hash(mKeys[next]) & mMask;
+            // The entry can move back to the free slot unless its ideal slot lies after the free slot, up to where it is
+            boolean stays = slot <= next ? (slot < ideal && ideal <= next) : (slot < ideal || ideal <= next);
+            if (!stays) {
+                mKeys[slot] = mKeys[next];
+                mValues[slot] = mValues[next];
+                slot = next;
+            }
+            next = (next + 1) & mMask;
+        }
+        mValues[slot] = null;
+        mSize--;
+        return removed;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder().append('{');
+        forEach(new Visitor<V>() {
+            @Override
+            public void visit(long key, V value) {
+                if (builder.length() > 1) {
+                    builder.append(", ");
+                }
+                builder.append(key).append('=').append(value);
+            }
+        });
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Scrambles a key so that keys that differ in only their high bits, or follow a pattern, are spread over the slots
+     * @param key The key
+     * @return The scrambled key
+     */
+    protected static int hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int)(hash ^ (hash >>> 32));
+    }
+
+    @SuppressWarnings("unused")
+    private static final String TAG = LongObjectMap.class.getSimpleName();
+
+    public static final int DEFAULT_CAPACITY = 16;
+}
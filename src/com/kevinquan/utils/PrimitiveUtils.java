@@ -15,47 +15,1075 @@
  */
 package com.kevinquan.utils;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 /**
- * Helpers to work with primitive types
+ * Helpers to work with primitive types.  Arrays of at least {@link #PARALLEL_THRESHOLD} values are converted in parallel on the
+ * shared fork/join pool, if it has more than one worker.
  * 
  * @author Kevin Quan (kevin.quan@gmail.com)
  *
  */
 public class PrimitiveUtils {
 
+    /**
+     * What to do with null elements when converting boxed values to primitives
+     */
+    public static enum NullPolicy {
+        /** Leave null elements out, so the result is shorter than the input */
+        SKIP,
+        /** Convert null elements to the primitive type's default value, i.e., 0 or false */
+        DEFAULT,
+        /** Throw a {@link NullPointerException} */
+        THROW
+    }
+
+    /**
+     * Converts the elements in a range of indexes, so that a conversion can be split between threads
+     */
+    protected static interface RangeConverter {
+        void convert(int from, int to);
+    }
+
+    /**
+     * Splits the conversion of a range of indexes in half until the ranges are small enough to convert on one thread
+     */
+    protected static class RangeConversionTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        protected final RangeConverter mConverter;
+        protected final int mFrom;
+        protected final int mTo;
+
+        public RangeConversionTask(RangeConverter converter, int from, int to) {
+            mConverter = converter;
+            mFrom = from;
+            mTo = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (mTo - mFrom <= PARALLEL_CHUNK_SIZE) {
+                mConverter.convert(mFrom, mTo);
+                return;
+            }
+            int middle = (mFrom + mTo) >>> 1;
+            invokeAll(new RangeConversionTask(mConverter, mFrom, middle), new RangeConversionTask(mConverter, middle, mTo));
+        }
+    }
+
     @SuppressWarnings("unused")
     private static final String TAG = PrimitiveUtils.class.getSimpleName();
+
+    /**
+     * The number of values in an array from which it is converted in parallel
+     */
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    /**
+     * The number of values each parallel task converts
+     */
+    protected static final int PARALLEL_CHUNK_SIZE = 1 << 14;
+    
+    /**
+     * Convert an array of primitive ints into an equivalent array of {@link Integer} objects
+     * @param values The array of ints to convert
+     * @return An array of Integers
+     */
+    public static Integer[] asBoxed(final int[] values) {
+        if (values == null || values.length == 0) {
+            return new Integer[] {};
+        }
+        final Integer[] boxedValues = new Integer[values.length];
+        convert(values.length, new RangeConverter() {
+            @Override
+            public void convert(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    boxedValues[i] = values[i];
+                }
+            }
+        });
+        return boxedValues;
+    }
+    
+    /**
+     * Convert an array of primitive longs into an equivalent array of {@link Long} objects
+     * @param values The array of longs to convert
+     * @return An array of Longs
+     */
+    public static Long[] asBoxed(final long[] values) {
+        if (values == null || values.length == 0) {
+            return new Long[] {};
+        }
+        final Long[] boxedValues = new Long[values.length];
+        convert(values.length, new RangeConverter() {
+            @Override
+            public void convert(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    boxedValues[i] = values[i];
+                }
+            }
+        });
+        return boxedValues;
+    }
+    
+    /**
+     * Convert an array of primitive floats into an equivalent array of {@link Float} objects
+     * @param values The array of floats to convert
+     * @return An array of Floats
+     */
+    public static Float[] asBoxed(final float[] values) {
+        if (values == null || values.length == 0) {
+            return new Float[] {};
+        }
+        final Float[] boxedValues = new Float[values.length];
+        convert(values.length, new RangeConverter() {
+            @Override
+            public void convert(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    boxedValues[i] = values[i];
+                }
+            }
+        });
+        return boxedValues;
+    }
+    
+    /**
+     * Convert an array of primitive doubles into an equivalent array of {@link Double} objects
+     * @param values The array of doubles to convert
+     * @return An array of Doubles
+     */
+    public static Double[] asBoxed(final double[] values) {
+        if (values == null || values.length == 0) {
+            return new Double[] {};
+        }
+        final Double[] boxedValues = new Double[values.length];
+        convert(values.length, new RangeConverter() {
+            @Override
+            public void convert(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    boxedValues[i] = values[i];
+                }
+            }
+        });
+        return boxedValues;
+    }
+    
+    /**
+     * Convert an array of primitive shorts into an equivalent array of {@link Short} objects
+     * @param values The array of shorts to convert
+     * @return An array of Shorts
+     */
+    public static Short[] asBoxed(final short[] values) {
+        if (values == null || values.length == 0) {
+            return new Short[] {};
+        }
+        final Short[] boxedValues = new Short[values.length];
+        convert(values.length, new RangeConverter() {
+            @Override
+            public void convert(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    boxedValues[i] = values[i];
+                }
+            }
+        });
+        return boxedValues;
+    }
+    
+    /**
+     * Convert an array of primitive bytes into an equivalent array of {@link Byte} objects
+     * @param values The array of bytes to convert
+     * @return An array of Bytes
+     */
+    public static Byte[] asBoxed(final byte[] values) {
+        if (values == null || values.length == 0) {
+            return new Byte[] {};
+        }
+        final Byte[] boxedValues = new Byte[values.length];
+        convert(values.length, new RangeConverter() {
+            @Override
+            public void convert(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    boxedValues[i] = values[i];
+                }
+            }
+        });
+        return boxedValues;
+    }
+    
+    /**
+     * Convert an array of primitive chars into an equivalent array of {@link Character} objects
+     * @param values The array of chars to convert
+     * @return An array of Characters
+     */
+    public static Character[] asBoxed(final char[] values) {
+        if (values == null || values.length == 0) {
+            return new Character[] {};
+        }
+        final Character[] boxedValues = new Character[values.length];
+        convert(values.length, new RangeConverter() {
+            @Override
+            public void convert(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    boxedValues[i] = values[i];
+                }
+            }
+        });
+        return boxedValues;
+    }
+    
+    /**
+     * Convert an array of primitive booleans into an equivalent array of {@link Boolean} objects
+     * @param values The array of booleans to convert
+     * @return An array of Booleans
+     */
+    public static Boolean[] asBoxed(final boolean[] values) {
+        if (values == null || values.length == 0) {
+            return new Boolean[] {};
+        }
+        final Boolean[] boxedValues = new Boolean[values.length];
+        convert(values.length, new RangeConverter() {
+            @Override
+            public void convert(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    boxedValues[i] = values[i];
+                }
+            }
+        });
+        return boxedValues;
+    }
+    
+    /**
+     * Convert an array of primitive ints into an equivalent list of {@link Integer} objects
+     * @param values The array of ints to convert
+     * @return A modifiable list of Integers
+     */
+    public static List<Integer> asBoxedList(int[] values) {
+        if (values == null || values.length == 0) {
+            return new ArrayList<Integer>();
+        }
+        return new ArrayList<Integer>(Arrays.asList(asBoxed(values)));
+    }
+    
+    /**
+     * Convert an array of primitive longs into an equivalent list of {@link Long} objects
+     * @param values The array of longs to convert
+     * @return A modifiable list of Longs
+     */
+    public static List<Long> asBoxedList(long[] values) {
+        if (values == null || values.length == 0) {
+            return new ArrayList<Long>();
+        }
+        return new ArrayList<Long>(Arrays.asList(asBoxed(values)));
+    }
+    
+    /**
+     * Convert an array of primitive floats into an equivalent list of {@link Float} objects
+     * @param values The array of floats to convert
+     * @return A modifiable list of Floats
+     */
+    public static List<Float> asBoxedList(float[] values) {
+        if (values == null || values.length == 0) {
+            return new ArrayList<Float>();
+        }
+        return new ArrayList<Float>(Arrays.asList(asBoxed(values)));
+    }
+    
+    /**
+     * Convert an array of primitive doubles into an equivalent list of {@link Double} objects
+     * @param values The array of doubles to convert
+     * @return A modifiable list of Doubles
+     */
+    public static List<Double> asBoxedList(double[] values) {
+        if (values == null || values.length == 0) {
+            return new ArrayList<Double>();
+        }
+        return new ArrayList<Double>(Arrays.asList(asBoxed(values)));
+    }
+    
+    /**
+     * Convert an array of primitive shorts into an equivalent list of {@link Short} objects
+     * @param values The array of shorts to convert
+     * @return A modifiable list of Shorts
+     */
+    public static List<Short> asBoxedList(short[] values) {
+        if (values == null || values.length == 0) {
+            return new ArrayList<Short>();
+        }
+        return new ArrayList<Short>(Arrays.asList(asBoxed(values)));
+    }
+    
+    /**
+     * Convert an array of primitive bytes into an equivalent list of {@link Byte} objects
+     * @param values The array of bytes to convert
+     * @return A modifiable list of Bytes
+     */
+    public static List<Byte> asBoxedList(byte[] values) {
+        if (values == null || values.length == 0) {
+            return new ArrayList<Byte>();
+        }
+        return new ArrayList<Byte>(Arrays.asList(asBoxed(values)));
+    }
+    
+    /**
+     * Convert an array of primitive chars into an equivalent list of {@link Character} objects
+     * @param values The array of chars to convert
+     * @return A modifiable list of Characters
+     */
+    public static List<Character> asBoxedList(char[] values) {
+        if (values == null || values.length == 0) {
+            return new ArrayList<Character>();
+        }
+        return new ArrayList<Character>(Arrays.asList(asBoxed(values)));
+    }
+    
+    /**
+     * Convert an array of primitive booleans into an equivalent list of {@link Boolean} objects
+     * @param values The array of booleans to convert
+     * @return A modifiable list of Booleans
+     */
+    public static List<Boolean> asBoxedList(boolean[] values) {
+        if (values == null || values.length == 0) {
+            return new ArrayList<Boolean>();
+        }
+        return new ArrayList<Boolean>(Arrays.asList(asBoxed(values)));
+    }
     
     /**
      * Convert an array of {@link Integer} objects into an equivalent array of primitive ints
-     * @param values The array of Integers to convert
+     * @param values The array of Integers to convert, which must not contain nulls
      * @return An array of ints
      */
     public static int[] asPrimitive(Integer[] values) {
+        return asPrimitive(values, NullPolicy.THROW);
+    }
+    
+    /**
+     * Convert an array of {@link Integer} objects into an equivalent array of primitive ints
+     * @param values The array of Integers to convert
+     * @param policy What to do with null elements
+     * @return An array of ints
+     * @throws IllegalArgumentException If the policy is null
+     */
+    public static int[] asPrimitive(final Integer[] values, NullPolicy policy) {
+        checkPolicy(policy);
         if (values == null || values.length == 0) {
             return new int[] {};
         }
-        int[] primitiveValues = new int[values.length];
-        for (int i = 0; i < values.length; i++) {
-            primitiveValues[i] = (Integer)values[i]; 
+        if (policy == NullPolicy.THROW) {
+            int firstNull = indexOfNull(values);
+            if (firstNull >= 0) {
+                throw getNullElementException(firstNull);
+            }
+        } else if (policy == NullPolicy.SKIP) {
+            int nulls = countNulls(values);
+            if (nulls > 0) {
+                int[] primitiveValues = new int[values.length - nulls];
+                int count = 0;
+                for (Integer value : values) {
+                    if (value != null) {
+                        primitiveValues[count++] = value;
+                    }
+                }
+                return primitiveValues;
+            }
         }
+        final int[] primitiveValues = new int[values.length];
+        convert(values.length, new RangeConverter() {
+            @Override
+            public void convert(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    // Null elements are left as the default value, as any that need to be thrown or skipped have been
+                    Integer value = values[i];
+                    if (value != null) {
+                        primitiveValues[i] = value;
+                    }
+                }
+            }
+        });
+        return primitiveValues;
+    }
+    
+    /**
+     * Convert an array of {@link Long} objects into an equivalent array of primitive longs
+     * @param values The array of Longs to convert, which must not contain nulls
+     * @return An array of longs
+     */
+    public static long[] asPrimitive(Long[] values) {
+        return asPrimitive(values, NullPolicy.THROW);
+    }
+    
+    /**
+     * Convert an array of {@link Long} objects into an equivalent array of primitive longs
+     * @param values The array of Longs to convert
+     * @param policy What to do with null elements
+     * @return An array of longs
+     * @throws IllegalArgumentException If the policy is null
+     */
+    public static long[] asPrimitive(final Long[] values, NullPolicy policy) {
+        checkPolicy(policy);
+        if (values == null || values.length == 0) {
+            return new long[] {};
+        }
+        if (policy == NullPolicy.THROW) {
+            int firstNull = indexOfNull(values);
+            if (firstNull >= 0) {
+                throw getNullElementException(firstNull);
+            }
+        } else if (policy == NullPolicy.SKIP) {
+            int nulls = countNulls(values);
+            if (nulls > 0) {
+                long[] primitiveValues = new long[values.length - nulls];
+                int count = 0;
+                for (Long value : values) {
+                    if (value != null) {
+                        primitiveValues[count++] = value;
+                    }
+                }
+                return primitiveValues;
+            }
+        }
+        final long[] primitiveValues = new long[values.length];
+        convert(values.length, new RangeConverter() {
+            @Override
+            public void convert(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    // Null elements are left as the default value, as any that need to be thrown or skipped have been
+                    Long value = values[i];
+                    if (value != null) {
+                        primitiveValues[i] = value;
+                    }
+                }
+            }
+        });
         return primitiveValues;
     }
     
     /**
      * Convert an array of {@link Float} objects into an equivalent array of primitive floats
-     * @param values The array of Floats to convert
+     * @param values The array of Floats to convert, which must not contain nulls
      * @return An array of floats
      */
     public static float[] asPrimitive(Float[] values) {
+        return asPrimitive(values, NullPolicy.THROW);
+    }
+    
+    /**
+     * Convert an array of {@link Float} objects into an equivalent array of primitive floats
+     * @param values The array of Floats to convert
+     * @param policy What to do with null elements
+     * @return An array of floats
+     * @throws IllegalArgumentException If the policy is null
+     */
+    public static float[] asPrimitive(final Float[] values, NullPolicy policy) {
+        checkPolicy(policy);
         if (values == null || values.length == 0) {
             return new float[] {};
         }
-        float[] primitiveValues = new float[values.length];
-        for (int i = 0; i < values.length; i++) {
-            primitiveValues[i] = (Float)values[i]; 
+        if (policy == NullPolicy.THROW) {
+            int firstNull = indexOfNull(values);
+            if (firstNull >= 0) {
+                throw getNullElementException(firstNull);
+            }
+        } else if (policy == NullPolicy.SKIP) {
+            int nulls = countNulls(values);
+            if (nulls > 0) {
+                float[] primitiveValues = new float[values.length - nulls];
+                int count = 0;
+                for (Float value : values) {
+                    if (value != null) {
+                        primitiveValues[count++] = value;
+                    }
+                }
+                return primitiveValues;
+            }
+        }
+        final float[] primitiveValues = new float[values.length];
+        convert(values.length, new RangeConverter() {
+            @Override
+            public void convert(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    // Null elements are left as the default value, as any that need to be thrown or skipped have been
+                    Float value = values[i];
+                    if (value != null) {
+                        primitiveValues[i] = value;
+                    }
+                }
+            }
+        });
+        return primitiveValues;
+    }
+    
+    /**
+     * Convert an array of {@link Double} objects into an equivalent array of primitive doubles
+     * @param values The array of Doubles to convert, which must not contain nulls
+     * @return An array of doubles
+     */
+    public static double[] asPrimitive(Double[] values) {
+        return asPrimitive(values, NullPolicy.THROW);
+    }
+    
+    /**
+     * Convert an array of {@link Double} objects into an equivalent array of primitive doubles
+     * @param values The array of Doubles to convert
+     * @param policy What to do with null elements
+     * @return An array of doubles
+     * @throws IllegalArgumentException If the policy is null
+     */
+    public static double[] asPrimitive(final Double[] values, NullPolicy policy) {
+        checkPolicy(policy);
+        if (values == null || values.length == 0) {
+            return new double[] {};
+        }
+        if (policy == NullPolicy.THROW) {
+            int firstNull = indexOfNull(values);
+            if (firstNull >= 0) {
+                throw getNullElementException(firstNull);
+            }
+        } else if (policy == NullPolicy.SKIP) {
+            int nulls = countNulls(values);
+            if (nulls > 0) {
+                double[] primitiveValues = new double[values.length - nulls];
+                int count = 0;
+                for (Double value : values) {
+                    if (value != null) {
+                        primitiveValues[count++] = value;
+                    }
+                }
+                return primitiveValues;
+            }
+        }
+        final double[] primitiveValues = new double[values.length];
+        convert(values.length, new RangeConverter() {
+            @Override
+            public void convert(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    // Null elements are left as the default value, as any that need to be thrown or skipped have been
+                    Double value = values[i];
+                    if (value != null) {
+                        primitiveValues[i] = value;
+                    }
+                }
+            }
+        });
+        return primitiveValues;
+    }
+    
+    /**
+     * Convert an array of {@link Short} objects into an equivalent array of primitive shorts
+     * @param values The array of Shorts to convert, which must not contain nulls
+     * @return An array of shorts
+     */
+    public static short[] asPrimitive(Short[] values) {
+        return asPrimitive(values, NullPolicy.THROW);
+    }
+    
+    /**
+     * Convert an array of {@link Short} objects into an equivalent array of primitive shorts
+     * @param values The array of Shorts to convert
+     * @param policy What to do with null elements
+     * @return An array of shorts
+     * @throws IllegalArgumentException If the policy is null
+     */
+    public static short[] asPrimitive(final Short[] values, NullPolicy policy) {
+        checkPolicy(policy);
+        if (values == null || values.length == 0) {
+            return new short[] {};
+        }
+        if (policy == NullPolicy.THROW) {
+            int firstNull = indexOfNull(values);
+            if (firstNull >= 0) {
+                throw getNullElementException(firstNull);
+            }
+        } else if (policy == NullPolicy.SKIP) {
+            int nulls = countNulls(values);
+            if (nulls > 0) {
+                short[] primitiveValues = new short[values.length - nulls];
+                int count = 0;
+                for (Short value : values) {
+                    if (value != null) {
+                        primitiveValues[count++] = value;
+                    }
+                }
+                return primitiveValues;
+            }
+        }
+        final short[] primitiveValues = new short[values.length];
+        convert(values.length, new RangeConverter() {
+            @Override
+            public void convert(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    // Null elements are left as the default value, as any that need to be thrown or skipped have been
+                    Short value = values[i];
+                    if (value != null) {
+                        primitiveValues[i] = value;
+                    }
+                }
+            }
+        });
+        return primitiveValues;
+    }
+    
+    /**
+     * Convert an array of {@link Byte} objects into an equivalent array of primitive bytes
+     * @param values The array of Bytes to convert, which must not contain nulls
+     * @return An array of bytes
+     */
+    public static byte[] asPrimitive(Byte[] values) {
+        return asPrimitive(values, NullPolicy.THROW);
+    }
+    
+    /**
+     * Convert an array of {@link Byte} objects into an equivalent array of primitive bytes
+     * @param values The array of Bytes to convert
+     * @param policy What to do with null elements
+     * @return An array of bytes
+     * @throws IllegalArgumentException If the policy is null
+     */
+    public static byte[] asPrimitive(final Byte[] values, NullPolicy policy) {
+        checkPolicy(policy);
+        if (values == null || values.length == 0) {
+            return new byte[] {};
+        }
+        if (policy == NullPolicy.THROW) {
+            int firstNull = indexOfNull(values);
+            if (firstNull >= 0) {
+                throw getNullElementException(firstNull);
+            }
+        } else if (policy == NullPolicy.SKIP) {
+            int nulls = countNulls(values);
+            if (nulls > 0) {
+                byte[] primitiveValues = new byte[values.length - nulls];
+                int count = 0;
+                for (Byte value : values) {
+                    if (value != null) {
+                        primitiveValues[count++] = value;
+                    }
+                }
+                return primitiveValues;
+            }
+        }
+        final byte[] primitiveValues = new byte[values.length];
+        convert(values.length, new RangeConverter() {
+            @Override
+            public void convert(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    // Null elements are left as the default value, as any that need to be thrown or skipped have been
+                    Byte value = values[i];
+                    if (value != null) {
+                        primitiveValues[i] = value;
+                    }
+                }
+            }
+        });
+        return primitiveValues;
+    }
+    
+    /**
+     * Convert an array of {@link Character} objects into an equivalent array of primitive chars
+     * @param values The array of Characters to convert, which must not contain nulls
+     * @return An array of chars
+     */
+    public static char[] asPrimitive(Character[] values) {
+        return asPrimitive(values, NullPolicy.THROW);
+    }
+    
+    /**
+     * Convert an array of {@link Character} objects into an equivalent array of primitive chars
+     * @param values The array of Characters to convert
+     * @param policy What to do with null elements
+     * @return An array of chars
+     * @throws IllegalArgumentException If the policy is null
+     */
+    public static char[] asPrimitive(final Character[] values, NullPolicy policy) {
+        checkPolicy(policy);
+        if (values == null || values.length == 0) {
+            return new char[] {};
+        }
+        if (policy == NullPolicy.THROW) {
+            int firstNull = indexOfNull(values);
+            if (firstNull >= 0) {
+                throw getNullElementException(firstNull);
+            }
+        } else if (policy == NullPolicy.SKIP) {
+            int nulls = countNulls(values);
+            if (nulls > 0) {
+                char[] primitiveValues = new char[values.length - nulls];
+                int count = 0;
+                for (Character value : values) {
+                    if (value != null) {
+                        primitiveValues[count++] = value;
+                    }
+                }
+                return primitiveValues;
+            }
+        }
+        final char[] primitiveValues = new char[values.length];
+        convert(values.length, new RangeConverter() {
+            @Override
+            public void convert(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    // Null elements are left as the default value, as any that need to be thrown or skipped have been
+                    Character value = values[i];
+                    if (value != null) {
+                        primitiveValues[i] = value;
+                    }
+                }
+            }
+        });
+        return primitiveValues;
+    }
+    
+    /**
+     * Convert an array of {@link Boolean} objects into an equivalent array of primitive booleans
+     * @param values The array of Booleans to convert, which must not contain nulls
+     * @return An array of booleans
+     */
+    public static boolean[] asPrimitive(Boolean[] values) {
+        return asPrimitive(values, NullPolicy.THROW);
+    }
+    
+    /**
+     * Convert an array of {@link Boolean} objects into an equivalent array of primitive booleans
+     * @param values The array of Booleans to convert
+     * @param policy What to do with null elements
+     * @return An array of booleans
+     * @throws IllegalArgumentException If the policy is null
+     */
+    public static boolean[] asPrimitive(final Boolean[] values, NullPolicy policy) {
+        checkPolicy(policy);
+        if (values == null || values.length == 0) {
+            return new boolean[] {};
+        }
+        if (policy == NullPolicy.THROW) {
+            int firstNull = indexOfNull(values);
+            if (firstNull >= 0) {
+                throw getNullElementException(firstNull);
+            }
+        } else if (policy == NullPolicy.SKIP) {
+            int nulls = countNulls(values);
+            if (nulls > 0) {
+                boolean[] primitiveValues = new boolean[values.length - nulls];
+                int count = 0;
+                for (Boolean value : values) {
+                    if (value != null) {
+                        primitiveValues[count++] = value;
+                    }
+                }
+                return primitiveValues;
+            }
         }
+        final boolean[] primitiveValues = new boolean[values.length];
+        convert(values.length, new RangeConverter() {
+            @Override
+            public void convert(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    // Null elements are left as the default value, as any that need to be thrown or skipped have been
+                    Boolean value = values[i];
+                    if (value != null) {
+                        primitiveValues[i] = value;
+                    }
+                }
+            }
+        });
         return primitiveValues;
     }
+    
+    /**
+     * Ensures a null policy was given, as a null policy could only be guessed at
+     * @param policy The policy
+     */
+    protected static void checkPolicy(NullPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("A null policy is required");
+        }
+    }
+    
+    /**
+     * Runs a conversion over a range of indexes, splitting it between the threads of the shared fork/join pool if it is large
+     * @param length The number of indexes to convert
+     * @param converter The conversion
+     */
+    protected static void convert(int length, RangeConverter converter) {
+        if (length < PARALLEL_THRESHOLD) {
+            converter.convert(0, length);
+            return;
+        }
+        ForkJoinPool pool = ConcurrencyUtils.getSharedForkJoinPool();
+        if (pool.getParallelism() < 2) {
+            converter.convert(0, length);
+        } else {
+            pool.invoke(new RangeConversionTask(converter, 0, length));
+        }
+    }
+    
+    protected static int countNulls(Object[] values) {
+        int nulls = 0;
+        for (Object value : values) {
+            if (value == null) {
+                nulls++;
+            }
+        }
+        return nulls;
+    }
+    
+    protected static NullPointerException getNullElementException(int index) {
+        return new NullPointerException("Cannot convert the null element at index "+index+" to a primitive");
+    }
+    
+    protected static int indexOfNull(Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Convert a collection of {@link Boolean} objects into an equivalent array of primitive booleans
+     * @param values The collection of Booleans to convert
+     * @param policy What to do with null elements
+     * @return An array of booleans, in the collection's iteration order
+     * @throws IllegalArgumentException If the policy is null
+     */
+    public static boolean[] toBooleanArray(Collection<Boolean> values, NullPolicy policy) {
+        checkPolicy(policy);
+        if (values == null || values.isEmpty()) {
+            return new boolean[] {};
+        }
+        boolean[] primitiveValues = new boolean[values.size()];
+        int count = 0;
+        for (Boolean value : values) {
+            if (count == primitiveValues.length) {
+                // The collection grew while it was being converted
+                primitiveValues = Arrays.copyOf(primitiveValues, count + (count >> 1) + 1);
+            }
+            if (value != null) {
+                primitiveValues[count++] = value;
+            } else if (policy == NullPolicy.THROW) {
+                throw getNullElementException(count);
+            } else if (policy != NullPolicy.SKIP) {
+                primitiveValues[count++] = false;
+            }
+        }
+        return count == primitiveValues.length ? primitiveValues : Arrays.copyOf(primitiveValues, count);
+    }
+    
+    /**
+     * Convert a collection of {@link Byte} objects into an equivalent array of primitive bytes
+     * @param values The collection of Bytes to convert
+     * @param policy What to do with null elements
+     * @return An array of bytes, in the collection's iteration order
+     * @throws IllegalArgumentException If the policy is null
+     */
+    public static byte[] toByteArray(Collection<Byte> values, NullPolicy policy) {
+        checkPolicy(policy);
+        if (values == null || values.isEmpty()) {
+            return new byte[] {};
+        }
+        byte[] primitiveValues = new byte[values.size()];
+        int count = 0;
+        for (Byte value : values) {
+            if (count == primitiveValues.length) {
+                // The collection grew while it was being converted
+                primitiveValues = Arrays.copyOf(primitiveValues, count + (count >> 1) + 1);
+            }
+            if (value != null) {
+                primitiveValues[count++] = value;
+            } else if (policy == NullPolicy.THROW) {
+                throw getNullElementException(count);
+            } else if (policy != NullPolicy.SKIP) {
+                primitiveValues[count++] = (byte)0;
+            }
+        }
+        return count == primitiveValues.length ? primitiveValues : Arrays.copyOf(primitiveValues, count);
+    }
+    
+    /**
+     * Convert a collection of {@link Character} objects into an equivalent array of primitive chars
+     * @param values The collection of Characters to convert
+     * @param policy What to do with null elements
+     * @return An array of chars, in the collection's iteration order
+     * @throws IllegalArgumentException If the policy is null
+     */
+    public static char[] toCharArray(Collection<Character> values, NullPolicy policy) {
+        checkPolicy(policy);
+        if (values == null || values.isEmpty()) {
+            return new char[] {};
+        }
+        char[] primitiveValues = new char[values.size()];
+        int count = 0;
+        for (Character value : values) {
+            if (count == primitiveValues.length) {
+                // The collection grew while it was being converted
+                primitiveValues = Arrays.copyOf(primitiveValues, count + (count >> 1) + 1);
+            }
+            if (value != null) {
+                primitiveValues[count++] = value;
+            } else if (policy == NullPolicy.THROW) {
+                throw getNullElementException(count);
+            } else if (policy != NullPolicy.SKIP) {
+                primitiveValues[count++] = (char)0;
+            }
+        }
+        return count == primitiveValues.length ? primitiveValues : Arrays.copyOf(primitiveValues, count);
+    }
+    
+    /**
+     * Convert a collection of {@link Double} objects into an equivalent array of primitive doubles
+     * @param values The collection of Doubles to convert
+     * @param policy What to do with null elements
+     * @return An array of doubles, in the collection's iteration order
+     * @throws IllegalArgumentException If the policy is null
+     */
+    public static double[] toDoubleArray(Collection<Double> values, NullPolicy policy) {
+        checkPolicy(policy);
+        if (values == null || values.isEmpty()) {
+            return new double[] {};
+        }
+        double[] primitiveValues = new double[values.size()];
+        int count = 0;
+        for (Double value : values) {
+            if (count == primitiveValues.length) {
+                // The collection grew while it was being converted
+                primitiveValues = Arrays.copyOf(primitiveValues, count + (count >> 1) + 1);
+            }
+            if (value != null) {
+                primitiveValues[count++] = value;
+            } else if (policy == NullPolicy.THROW) {
+                throw getNullElementException(count);
+            } else if (policy != NullPolicy.SKIP) {
+                primitiveValues[count++] = 0d;
+            }
+        }
+        return count == primitiveValues.length ? primitiveValues : Arrays.copyOf(primitiveValues, count);
+    }
+    
+    /**
+     * Convert a collection of {@link Float} objects into an equivalent array of primitive floats
+     * @param values The collection of Floats to convert
+     * @param policy What to do with null elements
+     * @return An array of floats, in the collection's iteration order
+     * @throws IllegalArgumentException If the policy is null
+     */
+    public static float[] toFloatArray(Collection<Float> values, NullPolicy policy) {
+        checkPolicy(policy);
+        if (values == null || values.isEmpty()) {
+            return new float[] {};
+        }
+        float[] primitiveValues = new float[values.size()];
+        int count = 0;
+        for (Float value : values) {
+            if (count == primitiveValues.length) {
+                // The collection grew while it was being converted
+                primitiveValues = Arrays.copyOf(primitiveValues, count + (count >> 1) + 1);
+            }
+            if (value != null) {
+                primitiveValues[count++] = value;
+            } else if (policy == NullPolicy.THROW) {
+                throw getNullElementException(count);
+            } else if (policy != NullPolicy.SKIP) {
+                primitiveValues[count++] = 0f;
+            }
+        }
+        return count == primitiveValues.length ? primitiveValues : Arrays.copyOf(primitiveValues, count);
+    }
+    
+    /**
+     * Convert a collection of {@link Integer} objects into an equivalent array of primitive ints
+     * @param values The collection of Integers to convert
+     * @param policy What to do with null elements
+     * @return An array of ints, in the collection's iteration order
+     * @throws IllegalArgumentException If the policy is null
+     */
+    public static int[] toIntArray(Collection<Integer> values, NullPolicy policy) {
+        checkPolicy(policy);
+        if (values == null || values.isEmpty()) {
+            return new int[] {};
+        }
+        int[] primitiveValues = new int[values.size()];
+        int count = 0;
+        for (Integer value : values) {
+            if (count == primitiveValues.length) {
+                // The collection grew while it was being converted
+                primitiveValues = Arrays.copyOf(primitiveValues, count + (count >> 1) + 1);
+            }
+            if (value != null) {
+                primitiveValues[count++] = value;
+            } else if (policy == NullPolicy.THROW) {
+                throw getNullElementException(count);
+            } else if (policy != NullPolicy.SKIP) {
+                primitiveValues[count++] = 0;
+            }
+        }
+        return count == primitiveValues.length ? primitiveValues : Arrays.copyOf(primitiveValues, count);
+    }
+    
+    /**
+     * Convert a collection of {@link Long} objects into an equivalent array of primitive longs
+     * @param values The collection of Longs to convert
+     * @param policy What to do with null elements
+     * @return An array of longs, in the collection's iteration order
+     * @throws IllegalArgumentException If the policy is null
+     */
+    public static long[] toLongArray(Collection<Long> values, NullPolicy policy) {
+        checkPolicy(policy);
+        if (values == null || values.isEmpty()) {
+            return new long[] {};
+        }
+        long[] primitiveValues = new long[values.size()];
+        int count = 0;
+        for (Long value : values) {
+            if (count == primitiveValues.length) {
+                // The collection grew while it was being converted
+                primitiveValues = Arrays.copyOf(primitiveValues, count + (count >> 1) + 1);
+            }
+            if (value != null) {
+                primitiveValues[count++] = value;
+            } else if (policy == NullPolicy.THROW) {
+                throw getNullElementException(count);
+            } else if (policy != NullPolicy.SKIP) {
+                primitiveValues[count++] = 0L;
+            }
+        }
+        return count == primitiveValues.length ? primitiveValues : Arrays.copyOf(primitiveValues, count);
+    }
+    
+    /**
+     * Convert a collection of {@link Short} objects into an equivalent array of primitive shorts
+     * @param values The collection of Shorts to convert
+     * @param policy What to do with null elements
+     * @return An array of shorts, in the collection's iteration order
+     * @throws IllegalArgumentException If the policy is null
+     */
+    public static short[] toShortArray(Collection<Short> values, NullPolicy policy) {
+        checkPolicy(policy);
+        if (values == null || values.isEmpty()) {
+            return new short[] {};
+        }
+        short[] primitiveValues = new short[values.size()];
+        int count = 0;
+        for (Short value : values) {
+            if (count == primitiveValues.length) {
+                // The collection grew while it was being converted
+                primitiveValues = Arrays.copyOf(primitiveValues, count + (count >> 1) + 1);
+            }
+            if (value != null) {
+                primitiveValues[count++] = value;
+            } else if (policy == NullPolicy.THROW) {
+                throw getNullElementException(count);
+            } else if (policy != NullPolicy.SKIP) {
+                primitiveValues[count++] = (short)0;
+            }
+        }
+        return count == primitiveValues.length ? primitiveValues : Arrays.copyOf(primitiveValues, count);
+    }
 
 }
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2015 Kevin Quan (kevin.quan@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kevinquan.utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Deduplicates strings that are repeated many times, such as tags, header names and MIME types, so that only one copy of each
+ * is kept alive.  Unlike {@link String#intern()}, the pool is bounded: it is a lock-free hash table split into sets of
+ * {@link #WAYS} slots, and when a set is full a random string in it is replaced.  A string that has been replaced is not
+ * canonical anymore, so strings from the pool should be compared with equals() rather than ==.
+ * <p>
+ * Strings can be looked up from a range of chars or UTF-8 encoded bytes, in which case no string is created unless it is not
+ * already pooled.  Long strings are unlikely to be repeated, so strings longer than a maximum length are not pooled.
+ * @author Kevin Quan (kevin.quan@gmail.com)
+ *
+ */
+public class StringPool {
+
+    protected final AtomicReferenceArray<String> mSlots;
+    protected final int mSetMask;
+    protected final int mMaxLength;
+
+    /**
+     * Creates a pool of {@link #DEFAULT_CAPACITY} strings of up to {@link #DEFAULT_MAX_LENGTH} chars
+     */
+    public StringPool() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * @param capacity The most strings to pool, which is rounded up to a power of two
+     * @param maxLength The length in chars above which strings are not pooled
+     */
+    public StringPool(int capacity, int maxLength) {
+        int sets = (Integer.highestOneBit(Math.max(WAYS, Math.min(capacity, MAX_CAPACITY)) - 1) << 1) / WAYS;
+        mSlots = new AtomicReferenceArray<String>(sets * WAYS);
+        mSetMask = sets - 1;
+        mMaxLength = maxLength;
+    }
+
+    /**
+     * Removes all strings from the pool
+     */
+    public void clear() {
+        for (int i = 0; i < mSlots.length(); i++) {
+            mSlots.set(i, null);
+        }
+    }
+
+    public int getCapacity() {
+        return mSlots.length();
+    }
+
+    public int getMaxLength() {
+        return mMaxLength;
+    }
+
+    /**
+     * Retrieves the pooled copy of a range of UTF-8 encoded bytes, decoding and pooling them if they aren't already pooled
+     * @param bytes The encoded bytes
+     * @param offset The index of the first byte
+     * @param length The number of bytes
+     * @return The pooled string, or null if the bytes are null
+     */
+    public String intern(byte[] bytes, int offset, int length) {
+        if (bytes == null) {
+            return null;
+        }
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IndexOutOfBoundsException("Range "+offset+"+"+length+" is outside an array of length "+bytes.length);
+        }
+        long hashAndLength = hashUtf8(bytes, offset, length);
+        int charLength = (int)(hashAndLength >> 32);
+        if (charLength < 0 || charLength > mMaxLength) {
+            // Not valid UTF-8 or too long, so let the decoder deal with it
+            return intern(new String(bytes, offset, length, StringUtils.UTF8_CHARSET));
+        }
+        int hash = (int)hashAndLength;
+        int base = getSetIndex(hash);
+        for (int way = 0; way < WAYS; way++) {
+            String candidate = mSlots.get(base + way);
+            if (candidate != null && candidate.hashCode() == hash && candidate.length() == charLength
+                    && equalsUtf8(candidate, bytes, offset, length)) {
+                return candidate;
+            }
+        }
+        return add(base, new String(bytes, offset, length, StringUtils.UTF8_CHARSET));
+    }
+
+    /**
+     * Retrieves the pooled copy of a range of chars, creating and pooling a string of them if they aren't already pooled
+     * @param chars The chars
+     * @param offset The index of the first char
+     * @param length The number of chars
+     * @return The pooled string, or null if the chars are null
+     */
+    public String intern(char[] chars, int offset, int length) {
+        if (chars == null) {
+            return null;
+        }
+        if (offset < 0 || length < 0 || offset + length > chars.length) {
+            throw new IndexOutOfBoundsException("Range "+offset+"+"+length+" is outside an array of length "+chars.length);
+        }
+        if (length > mMaxLength) {
+            return new String(chars, offset, length);
+        }
+        int hash = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int base = getSetIndex(hash);
+        for (int way = 0; way < WAYS; way++) {
+            String candidate = mSlots.get(base + way);
+            if (candidate != null && candidate.hashCode() == hash && candidate.length() == length
+                    && equalsChars(candidate, chars, offset)) {
+                return candidate;
+            }
+        }
+        return add(base, new String(chars, offset, length));
+    }
+
+    /**
+     * Retrieves the pooled copy of a string, pooling the string if it isn't already pooled
+     * @param string The string
+     * @return The pooled string, or null if the string is null
+     */
+    public String intern(String string) {
+        if (string == null || string.length() > mMaxLength) {
+            return string;
+        }
+        int hash = string.hashCode();
+        int base = getSetIndex(hash);
+        for (int way = 0; way < WAYS; way++) {
+            String candidate = mSlots.get(base + way);
+            if (candidate != null && candidate.hashCode() == hash && candidate.equals(string)) {
+                return candidate;
+            }
+        }
+        return add(base, string);
+    }
+
+    /**
+     * Adds a string to a set, replacing a random string in it if it is full.  If another thread added the same string to the set
+     * in the meantime, its copy is used instead.
+     * @param base The index of the first slot of the set
+     * @param string The string to add
+     * @return The pooled string
+     */
+    protected String add(int base, String string) {
+        for (int way = 0; way < WAYS; way++) {
+            int index = base + way;
+            String existing = mSlots.get(index);
+            if (existing == null) {
+                if (mSlots.compareAndSet(index, null, string)) {
+                    return string;
+                }
+                existing = mSlots.get(index);
+            }
+            if (string.equals(existing)) {
+                return existing;
+            }
+        }
+        mSlots.lazySet(base + ThreadLocalRandom.current().nextInt(WAYS), string);
+        return string;
+    }
+
+    protected int getSetIndex(int hash) {
+        return ((hash ^ (hash >>> 16)) & mSetMask) * WAYS;
+    }
+
+    /**
+     * Decodes a multi-byte UTF-8 sequence, which must be valid
+     * @param bytes The encoded bytes
+     * @param index The index of the sequence's lead byte
+     * @param sequenceLength The number of bytes in the sequence
+     * @return The code point
+     */
+    protected static int decodeUtf8(byte[] bytes, int index, int sequenceLength) {
+        int codePoint = bytes[index] & (0xFF >> (sequenceLength + 1));
+        for (int i = 1; i < sequenceLength; i++) {
+            codePoint = (codePoint << 6) | (bytes[index + i] & 0x3F);
+        }
+        return codePoint;
+    }
+
+    /**
+     * Determines whether a string has the same chars as a range of an array
+     * @param string The string
+     * @param chars The chars, which must have at least as many chars as the string after the offset
+     * @param offset The index of the first char
+     * @return True if the chars are equal
+     */
+    protected static boolean equalsChars(String string, char[] chars, int offset) {
+        for (int i = 0, length = string.length(); i < length; i++) {
+            if (string.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determines whether a string is the decoding of a range of bytes, which must be valid UTF-8 decoding to as many chars as the
+     * string has
+     * @param string The string
+     * @param bytes The encoded bytes
+     * @param offset The index of the first byte
+     * @param length The number of bytes
+     * @return True if the bytes decode to the string
+     */
+    protected static boolean equalsUtf8(String string, byte[] bytes, int offset, int length) {
+        int charIndex = 0;
+        for (int i = offset, end = offset + length; i < end; ) {
+            int lead = bytes[i] & 0xFF;
+            if (lead < 0x80) {
+                if (string.charAt(charIndex++) != lead) {
+                    return false;
+                }
+                i++;
+                continue;
+            }
+            int sequenceLength = lead < 0xE0 ? 2 : lead < 0xF0 ? 3 : 4;
+            int codePoint = decodeUtf8(bytes, i, sequenceLength);
+            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                if (string.charAt(charIndex++) != codePoint) {
+                    return false;
+                }
+            } else if (string.charAt(charIndex++) != Character.highSurrogate(codePoint)
+                    || string.charAt(charIndex++) != Character.lowSurrogate(codePoint)) {
+                return false;
+            }
+            i += sequenceLength;
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the hash code that {@link String#hashCode()} would return for the decoding of UTF-8 bytes, without decoding them
+     * into a string
+     * @param bytes The encoded bytes
+     * @param offset The index of the first byte
+     * @param length The number of bytes
+     * @return The number of chars the bytes decode to in the upper 32 bits, or -1 if they are not valid UTF-8, and the hash code
+     * in the lower 32 bits
+     */
+    protected static long hashUtf8(byte[] bytes, int offset, int length) {
+        int hash = 0;
+        int chars = 0;
+        for (int i = offset, end = offset + length; i < end; ) {
+            int lead = bytes[i] & 0xFF;
+            if (lead < 0x80) {
+                hash = 31 * hash + lead;
+                chars++;
+                i++;
+                continue;
+            }
+            int sequenceLength;
+            if (lead < 0xC2) {
+                return INVALID_UTF8;
+            } else if (lead < 0xE0) {
+                sequenceLength = 2;
+            } else if (lead < 0xF0) {
+                sequenceLength = 3;
+            } else if (lead < 0xF5) {
+                sequenceLength = 4;
+            } else {
+                return INVALID_UTF8;
+            }
+            if (i + sequenceLength > end) {
+                return INVALID_UTF8;
+            }
+            // The second byte's range excludes overlong encodings, surrogates and code points above U+10FFFF
+            int second = bytes[i + 1] & 0xFF;
+            int lowest = lead == 0xE0 ? 0xA0 : lead == 0xF0 ? 0x90 : 0x80;
+            int highest = lead == 0xED ? 0x9F : lead == 0xF4 ? 0x8F : 0xBF;
+            if (second < lowest || second > highest) {
+                return INVALID_UTF8;
+            }
+            for (int j = 2; j < sequenceLength; j++) {
+                if ((bytes[i + j] & 0xC0) != 0x80) {
+                    return INVALID_UTF8;
+                }
+            }
+            int codePoint = decodeUtf8(bytes, i, sequenceLength);
+            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                hash = 31 * hash + codePoint;
+                chars++;
+            } else {
+                hash = 31 * (31 * hash + Character.highSurrogate(codePoint)) + Character.lowSurrogate(codePoint);
+                chars += 2;
+            }
+            i += sequenceLength;
+        }
+        return ((long)chars << 32) | (hash & 0xFFFFFFFFL);
+    }
+
+    @SuppressWarnings("unused")
+    private static final String TAG = StringPool.class.getSimpleName();
+
+    /**
+     * The number of slots in each set.  A string can only be pooled in one set, so lookups check at most this many strings.
+     */
+    public static final int WAYS = 4;
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    public static final int DEFAULT_MAX_LENGTH = 128;
+
+    protected static final int MAX_CAPACITY = 1 << 30;
+
+    protected static final long INVALID_UTF8 = -1L << 32;
+}
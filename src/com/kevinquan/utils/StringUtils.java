@@ -15,12 +15,131 @@
  */
 package com.kevinquan.utils;
 
-import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Collection;
 
 public class StringUtils {
 
 	/**
-	 * Determines the length of a string taking into account multi-byte character sets.
+	 * Determines whether all the provided strings are blank
+	 * @param strings The strings to check
+	 * @return True if every string is blank, or there are no strings
+	 */
+	public static boolean areAllBlank(CharSequence... strings) {
+		if (strings == null) {
+			return true;
+		}
+		for (CharSequence string : strings) {
+			if (!isBlank(string)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Determines whether all the provided strings are blank
+	 * @param strings The strings to check
+	 * @return True if every string is blank, or there are no strings
+	 */
+	public static boolean areAllBlank(Collection<? extends CharSequence> strings) {
+		if (strings == null) {
+			return true;
+		}
+		for (CharSequence string : strings) {
+			if (!isBlank(string)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Counts the code points in UTF-8 encoded bytes without decoding them, by counting the bytes that aren't continuation bytes.
+	 * Bytes are checked eight at a time.
+	 * @param bytes The encoded bytes
+	 * @param offset The index of the first byte
+	 * @param length The number of bytes
+	 * @return The number of code points, if the bytes are valid UTF-8
+	 */
+	public static int countUtf8CodePoints(byte[] bytes, int offset, int length) {
+		if (bytes == null) {
+			return 0;
+		}
+		return countUtf8CodePoints(ByteBuffer.wrap(bytes, offset, length));
+	}
+
+	/**
+	 * Counts the code points in UTF-8 encoded bytes without decoding them, by counting the bytes that aren't continuation bytes.
+	 * Bytes are checked eight at a time.
+	 * @param buffer The buffer holding the encoded bytes between its position and limit, which are not changed
+	 * @return The number of code points, if the bytes are valid UTF-8
+	 */
+	public static int countUtf8CodePoints(ByteBuffer buffer) {
+		if (buffer == null) {
+			return 0;
+		}
+		int index = buffer.position();
+		int limit = buffer.limit();
+		int continuations = 0;
+		for (; index + 8 <= limit; index += 8) {
+			// A continuation byte is 10xxxxxx, so its top bit is set and the bit below it, shifted up into the top bit, is not
+			long word = buffer.getLong(index);
+			continuations += Long.bitCount(word & ~(word << 1) & HIGH_BITS);
+		}
+		for (; index < limit; index++) {
+			if ((buffer.get(index) & 0xC0) == 0x80) {
+				continuations++;
+			}
+		}
+		return buffer.remaining() - continuations;
+	}
+
+	/**
+	 * Determines how many of the UTF-8 encoded bytes can be kept when shortening them to at most a number of bytes, without
+	 * splitting an encoded character
+	 * @param bytes The encoded bytes
+	 * @param offset The index of the first byte
+	 * @param length The number of bytes
+	 * @param maxBytes The most bytes to keep
+	 * @return The number of bytes to keep
+	 */
+	public static int findUtf8TruncationPoint(byte[] bytes, int offset, int length, int maxBytes) {
+		if (bytes == null) {
+			return 0;
+		}
+		return findUtf8TruncationPoint(ByteBuffer.wrap(bytes, offset, length), maxBytes);
+	}
+
+	/**
+	 * Determines how many of the UTF-8 encoded bytes can be kept when shortening them to at most a number of bytes, without
+	 * splitting an encoded character.  If the bytes at the cut are not valid UTF-8, they are cut at the maximum.
+	 * @param buffer The buffer holding the encoded bytes between its position and limit, which are not changed
+	 * @param maxBytes The most bytes to keep
+	 * @return The number of bytes to keep
+	 */
+	public static int findUtf8TruncationPoint(ByteBuffer buffer, int maxBytes) {
+		if (buffer == null || maxBytes <= 0) {
+			return 0;
+		}
+		if (maxBytes >= buffer.remaining()) {
+			return buffer.remaining();
+		}
+		int start = buffer.position();
+		// Back up over the continuation bytes of the character being cut, so that its lead byte is cut as well
+		int end = start + maxBytes;
+		for (int backedUp = 0; end > start && (buffer.get(end) & 0xC0) == 0x80; backedUp++, end--) {
+			if (backedUp == MAX_UTF8_CONTINUATION_BYTES) {
+				return maxBytes;
+			}
+		}
+		return end - start;
+	}
+
+	/**
+	 * Determines the length of a string taking into account multi-byte character sets, i.e., the number of code points in it.
+	 * A surrogate pair counts as one code point, and an unpaired surrogate counts as one.
 	 * @param theString The string to check
 	 * @return The length of the string
 	 */
@@ -28,28 +147,250 @@ public class StringUtils {
 		if (theString == null) {
 			return 0;
 		}
-		byte[] utf8 = null;
-		try {
-			utf8 = theString.getBytes(UTF8_LITERAL);
-		} catch (UnsupportedEncodingException uee) {
-			// This should never happen as UTF-8 is a standard encoding.
-			return theString.length();
+		return Character.codePointCount(theString, 0, theString.length());
+	}
+
+	/**
+	 * Determines how many bytes a string takes when encoded as UTF-8, without encoding it.  An unpaired surrogate counts as
+	 * one byte, as it is encoded as '?'.
+	 * @param string The string to check
+	 * @return The number of bytes
+	 */
+	public static int getUtf8Length(CharSequence string) {
+		if (string == null) {
+			return 0;
+		}
+		int length = string.length();
+		int bytes = length;
+		for (int i = 0; i < length; i++) {
+			char c = string.charAt(i);
+			if (c < 0x80) {
+				continue;
+			}
+			if (c < 0x800) {
+				bytes++;
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+				// Four bytes for the two chars of the pair
+				bytes += 2;
+				i++;
+			} else if (!Character.isSurrogate(c)) {
+				bytes += 2;
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Determines whether any of the provided strings is blank, e.g., to check that all required fields of a request were provided
+	 * @param strings The strings to check
+	 * @return True if at least one string is blank
+	 */
+	public static boolean isAnyBlank(CharSequence... strings) {
+		if (strings == null) {
+			return false;
+		}
+		for (CharSequence string : strings) {
+			if (isBlank(string)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Determines whether any of the provided strings is blank, e.g., to check that all required fields of a request were provided
+	 * @param strings The strings to check
+	 * @return True if at least one string is blank
+	 */
+	public static boolean isAnyBlank(Collection<? extends CharSequence> strings) {
+		if (strings == null) {
+			return false;
+		}
+		for (CharSequence string : strings) {
+			if (isBlank(string)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Determines whether a string is null, empty or only whitespace.  Whitespace is any character up to and including a space, as
+	 * with {@link String#trim()}, but the string is scanned in place rather than trimmed into a copy.
+	 * @param string The string to check
+	 * @return True if the string is blank
+	 */
+	public static boolean isBlank(CharSequence string) {
+		if (string == null) {
+			return true;
+		}
+		if (string instanceof String) {
+			// Avoid the interface call for each character in the common case
+			String value = (String)string;
+			for (int i = 0, length = value.length(); i < length; i++) {
+				if (value.charAt(i) > ' ') {
+					return false;
+				}
+			}
+			return true;
+		}
+		for (int i = 0, length = string.length(); i < length; i++) {
+			if (string.charAt(i) > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Determines whether bytes are valid UTF-8, i.e., contain no overlong encodings, surrogates, code points above U+10FFFF or
+	 * truncated characters.  Runs of ASCII are skipped eight bytes at a time.
+	 * @param bytes The encoded bytes
+	 * @param offset The index of the first byte
+	 * @param length The number of bytes
+	 * @return True if the bytes are valid UTF-8
+	 */
+	public static boolean isValidUtf8(byte[] bytes, int offset, int length) {
+		if (bytes == null) {
+			return false;
+		}
+		return isValidUtf8(ByteBuffer.wrap(bytes, offset, length));
+	}
+
+	/**
+	 * Determines whether bytes are valid UTF-8, i.e., contain no overlong encodings, surrogates, code points above U+10FFFF or
+	 * truncated characters.  Runs of ASCII are skipped eight bytes at a time.
+	 * @param buffer The buffer holding the encoded bytes between its position and limit, which are not changed
+	 * @return True if the bytes are valid UTF-8
+	 */
+	public static boolean isValidUtf8(ByteBuffer buffer) {
+		if (buffer == null) {
+			return false;
+		}
+		int index = buffer.position();
+		int limit = buffer.limit();
+		while (index < limit) {
+			if (index + 8 <= limit && (buffer.getLong(index) & HIGH_BITS) == 0) {
+				index += 8;
+				continue;
+			}
+			int lead = buffer.get(index) & 0xFF;
+			if (lead < 0x80) {
+				index++;
+				continue;
+			}
+			int length;
+			if (lead < 0xC2) {
+				// A continuation byte without a lead byte, or an overlong two byte encoding
+				return false;
+			} else if (lead < 0xE0) {
+				length = 2;
+			} else if (lead < 0xF0) {
+				length = 3;
+			} else if (lead < 0xF5) {
+				length = 4;
+			} else {
+				return false;
+			}
+			if (index + length > limit) {
+				return false;
+			}
+			// The second byte's range excludes overlong encodings, surrogates and code points above U+10FFFF
+			int second = buffer.get(index + 1) & 0xFF;
+			int lowest = lead == 0xE0 ? 0xA0 : lead == 0xF0 ? 0x90 : 0x80;
+			int highest = lead == 0xED ? 0x9F : lead == 0xF4 ? 0x8F : 0xBF;
+			if (second < lowest || second > highest) {
+				return false;
+			}
+			for (int i = 2; i < length; i++) {
+				if ((buffer.get(index + i) & 0xC0) != 0x80) {
+					return false;
+				}
+			}
+			index += length;
+		}
+		return true;
+	}
+
+	/**
+	 * Shortens a string to at most a number of code points, without splitting a surrogate pair
+	 * @param string The string to shorten
+	 * @param maxCodePoints The most code points to keep
+	 * @return The shortened string, or the string itself if it is already short enough
+	 */
+	public static String truncateToCodePoints(String string, int maxCodePoints) {
+		if (string == null) {
+			return null;
+		}
+		int length = string.length();
+		if (length <= maxCodePoints) {
+			return string;
 		}
-		int count = 0;
-		for (int i = 0; i < utf8.length; i++) {
-			// 0xc0 = 1100 0000
-			// 0x80 = 1000 0000
-			if ((utf8[i] & 0xc0) != 0x80) {
-				count++;
+		int end = 0;
+		for (int codePoints = 0; end < length && codePoints < maxCodePoints; codePoints++) {
+			if (Character.isHighSurrogate(string.charAt(end)) && end + 1 < length && Character.isLowSurrogate(string.charAt(end + 1))) {
+				end += 2;
+			} else {
+				end++;
 			}
 		}
-		return count;
+		return end == length ? string : string.substring(0, end);
+	}
+
+	/**
+	 * Shortens a string so that it takes at most a number of bytes when encoded as UTF-8, without splitting a character
+	 * @param string The string to shorten
+	 * @param maxBytes The most bytes the encoded string may take
+	 * @return The shortened string, or the string itself if it is already short enough
+	 */
+	public static String truncateToUtf8Bytes(String string, int maxBytes) {
+		if (string == null) {
+			return null;
+		}
+		int length = string.length();
+		if ((long)length * 3 <= maxBytes) {
+			// Even if every char took three bytes, the string would fit
+			return string;
+		}
+		int bytes = 0;
+		for (int i = 0; i < length; i++) {
+			char c = string.charAt(i);
+			int charBytes;
+			int chars = 1;
+			if (c < 0x80) {
+				charBytes = 1;
+			} else if (c < 0x800) {
+				charBytes = 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+				charBytes = 4;
+				chars = 2;
+			} else if (Character.isSurrogate(c)) {
+				charBytes = 1;
+			} else {
+				charBytes = 3;
+			}
+			if (bytes + charBytes > maxBytes) {
+				return string.substring(0, i);
+			}
+			bytes += charBytes;
+			i += chars - 1;
+		}
+		return string;
 	}
 
 	@SuppressWarnings("unused")
 	private static final String TAG = StringUtils.class.getSimpleName();
 	public static final String UTF8_LITERAL = "UTF-8";
 
+	public static final Charset UTF8_CHARSET = Charset.forName(UTF8_LITERAL);
+
+	/**
+	 * The top bit of each byte in a long, which is only set in bytes that aren't ASCII
+	 */
+	protected static final long HIGH_BITS = 0x8080808080808080L;
+
+	protected static final int MAX_UTF8_CONTINUATION_BYTES = 3;
+
 	public static final String SPACE_LITERAL = "\u0020";
 
     public static final String LINE_BREAK = System.getProperty("line.separator");
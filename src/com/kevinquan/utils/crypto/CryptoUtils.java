@@ -15,11 +15,23 @@
  */
 package com.kevinquan.utils.crypto;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import com.kevinquan.android.stubs.Log;
 import com.kevinquan.utils.ByteUtils;
+import com.kevinquan.utils.ConcurrencyUtils;
+import com.kevinquan.utils.IOUtils;
 
 /**
  * Collection of utilities related to cryptography
@@ -29,7 +41,142 @@ import com.kevinquan.utils.ByteUtils;
  */
 public class CryptoUtils {
 
-	public static enum HashAlgorithm { MD5, SHA1, SHA256, SHA512 }
+	public static enum HashAlgorithm {
+		MD5("MD5"),
+		SHA1("SHA-1"),
+		SHA256("SHA-256"),
+		SHA512("SHA-512"),
+		/** Non-cryptographic; see {@link FastHashUtils} */
+		XXHASH64(FastHashUtils.XXHASH64_NAME) {
+			@Override
+			public MessageDigest newDigest() {
+				return new FastHashUtils.XxHash64Digest();
+			}
+		},
+		/** Non-cryptographic; see {@link FastHashUtils} */
+		MURMUR3_128(FastHashUtils.MURMUR3_128_NAME) {
+			@Override
+			public MessageDigest newDigest() {
+				return new FastHashUtils.Murmur3Digest();
+			}
+		},
+		/** Non-cryptographic; see {@link FastHashUtils} */
+		CRC32C(FastHashUtils.CRC32C_NAME) {
+			@Override
+			public MessageDigest newDigest() {
+				return new FastHashUtils.Crc32cDigest();
+			}
+		};
+
+		private final String mAlgorithmName;
+
+		private HashAlgorithm(String algorithmName) {
+			mAlgorithmName = algorithmName;
+		}
+
+		/**
+		 * @return The name the security provider knows the algorithm by
+		 */
+		public String getAlgorithmName() {
+			return mAlgorithmName;
+		}
+
+		/**
+		 * Looks up a new digest for the algorithm from the security provider.  Prefer {@link CryptoUtils#createDigest(HashAlgorithm)},
+		 * which avoids the lookup where possible.
+		 * @return A new digest
+		 * @throws NoSuchAlgorithmException If the algorithm is not supported by the security provider
+		 */
+		public MessageDigest newDigest() throws NoSuchAlgorithmException {
+			return MessageDigest.getInstance(mAlgorithmName);
+		}
+	}
+
+	/**
+	 * Computes the hash of a range of chunks of a file as a subtree of a Merkle tree, hashing both halves of the range in parallel.
+	 */
+	protected static class TreeHashTask extends RecursiveTask<byte[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		protected final FileChannel mChannel;
+		protected final HashAlgorithm mAlgorithm;
+		protected final long mChunkSize;
+		protected final long mLength;
+		protected final long mFirstChunk;
+		protected final long mEndChunk;
+
+		/**
+		 * @param channel The file to hash
+		 * @param algorithm The algorithm to hash with
+		 * @param chunkSize The size of each leaf of the tree
+		 * @param length The length of the file
+		 * @param firstChunk The index of the first chunk in the subtree
+		 * @param endChunk The index after the last chunk in the subtree
+		 */
+		public TreeHashTask(FileChannel channel, HashAlgorithm algorithm, long chunkSize, long length, long firstChunk, long endChunk) {
+			mChannel = channel;
+			mAlgorithm = algorithm;
+			mChunkSize = chunkSize;
+			mLength = length;
+			mFirstChunk = firstChunk;
+			mEndChunk = endChunk;
+		}
+
+		@Override
+		protected byte[] compute() {
+			long chunks = mEndChunk - mFirstChunk;
+			if (chunks == 1) {
+				MessageDigest digest = getThreadLocalDigest(mAlgorithm);
+				digest.update(TREE_LEAF_PREFIX);
+				long position = mFirstChunk * mChunkSize;
+				try {
+					update(digest, mChannel, position, Math.min(mChunkSize, mLength - position));
+				} catch (IOException ioe) {
+					throw new TreeHashException(ioe);
+				}
+				return digest.digest();
+			}
+			// The left subtree holds the largest power of two chunks that leaves at least one chunk on the right
+			long split = mFirstChunk + Long.highestOneBit(chunks - 1);
+			TreeHashTask right = new TreeHashTask(mChannel, mAlgorithm, mChunkSize, mLength, split, mEndChunk);
+			right.fork();
+			byte[] leftHash = new TreeHashTask(mChannel, mAlgorithm, mChunkSize, mLength, mFirstChunk, split).compute();
+			byte[] rightHash = right.join();
+			MessageDigest digest = getThreadLocalDigest(mAlgorithm);
+			digest.update(TREE_NODE_PREFIX);
+			digest.update(leftHash);
+			digest.update(rightHash);
+			return digest.digest();
+		}
+	}
+
+	/**
+	 * Carries a read failure out of a tree hashing task
+	 */
+	protected static class TreeHashException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		public TreeHashException(IOException cause) {
+			super(cause);
+		}
+	}
+
+	/**
+	 * Takes the read buffer which belongs to the calling thread, so that hashing streams doesn't allocate a new buffer each time.
+	 * Until it is handed back with {@link #releaseBuffer(byte[])}, further calls on the thread (e.g., from a stream which hashes
+	 * something else while it is being read) get a new buffer instead of sharing it.
+	 * @return A buffer of {@link #BUFFER_SIZE} bytes
+	 */
+	private static byte[] borrowBuffer() {
+		byte[] buffer = THREAD_BUFFER.get();
+		if (buffer == null) {
+			return new byte[BUFFER_SIZE];
+		}
+		THREAD_BUFFER.set(null);
+		return buffer;
+	}
 
 	/**
 	 * Computes a hash for the provided input, using the requested algorithm
@@ -41,28 +188,336 @@ public class CryptoUtils {
 	    if (input == null || input.length == 0) {
 	        return new String();
 	    }
-		MessageDigest digest = null;
+		MessageDigest digest = getThreadLocalDigest(algorithm);
+		if (digest == null) return new String();
+		return ByteUtils.convertToHexString(digest.digest(input));
+	};
+
+	/**
+	 * Computes a hash for the remaining content of the provided buffer, using the requested algorithm.  The buffer's position is not changed.
+	 * @param input The buffer to hash
+	 * @param algorithm The algorithm to use
+	 * @return The hash, or an empty string if no hash was computed.
+	 */
+	public static String computeHash(ByteBuffer input, HashAlgorithm algorithm) {
+		return toHexString(computeHashBytes(input, algorithm));
+	}
+
+	/**
+	 * Computes a hash for the entire content of the provided channel, using the requested algorithm.  The channel's position is not changed.
+	 * Large channels are memory-mapped in regions rather than read onto the heap.
+	 * @param input The channel to hash
+	 * @param algorithm The algorithm to use
+	 * @return The hash, or an empty string if no hash was computed.
+	 */
+	public static String computeHash(FileChannel input, HashAlgorithm algorithm) {
+		return toHexString(computeHashBytes(input, algorithm));
+	}
+
+	/**
+	 * Computes a hash for the remaining content of the provided stream, using the requested algorithm.  The stream is read in constant
+	 * memory through a reusable buffer, and will not be closed.
+	 * @param input The stream to hash
+	 * @param algorithm The algorithm to use
+	 * @return The hash, or an empty string if no hash was computed.
+	 */
+	public static String computeHash(InputStream input, HashAlgorithm algorithm) {
+		return toHexString(computeHashBytes(input, algorithm));
+	}
+
+	/**
+	 * Computes a hash for the content of the provided file, using the requested algorithm.  Large files are memory-mapped in regions
+	 * rather than read onto the heap.
+	 * @param input The file to hash
+	 * @param algorithm The algorithm to use
+	 * @return The hash, or an empty string if no hash was computed.
+	 */
+	public static String computeHash(Path input, HashAlgorithm algorithm) {
+		return toHexString(computeHashBytes(input, algorithm));
+	}
+
+	/**
+	 * Computes a hash for the remaining content of the provided buffer, using the requested algorithm.  The buffer's position is not changed.
+	 * @param input The buffer to hash
+	 * @param algorithm The algorithm to use
+	 * @return The raw hash, or null if no hash was computed.
+	 */
+	public static byte[] computeHashBytes(ByteBuffer input, HashAlgorithm algorithm) {
+		if (input == null) {
+			return null;
+		}
+		MessageDigest digest = getThreadLocalDigest(algorithm);
+		if (digest == null) return null;
+		digest.update(input.duplicate());
+		return digest.digest();
+	}
+
+	/**
+	 * Computes a hash for the entire content of the provided channel, using the requested algorithm.  The channel's position is not changed.
+	 * Large channels are memory-mapped in regions rather than read onto the heap.
+	 * @param input The channel to hash
+	 * @param algorithm The algorithm to use
+	 * @return The raw hash, or null if no hash was computed.
+	 */
+	public static byte[] computeHashBytes(FileChannel input, HashAlgorithm algorithm) {
+		if (input == null) {
+			return null;
+		}
+		MessageDigest digest = getThreadLocalDigest(algorithm);
+		if (digest == null) return null;
+		try {
+			update(digest, input, 0, input.size());
+		} catch (IOException ioe) {
+			Log.e(TAG, "Could not read the content to hash.", ioe);
+			return null;
+		}
+		return digest.digest();
+	}
+
+	/**
+	 * Computes a hash for the remaining content of the provided stream, using the requested algorithm.  The stream is read in constant
+	 * memory through a reusable buffer, and will not be closed.  The stream's own code runs while it is hashed, so it gets a digest of
+	 * its own rather than this thread's digest, which the stream could otherwise reset by hashing something else.
+	 * @param input The stream to hash
+	 * @param algorithm The algorithm to use
+	 * @return The raw hash, or null if no hash was computed.
+	 */
+	public static byte[] computeHashBytes(InputStream input, HashAlgorithm algorithm) {
+		if (input == null) {
+			return null;
+		}
+		MessageDigest digest = createDigest(algorithm);
+		if (digest == null) return null;
+		byte[] buffer = borrowBuffer();
+		int readBytes;
+		try {
+			while ((readBytes = input.read(buffer)) != -1) {
+				digest.update(buffer, 0, readBytes);
+			}
+		} catch (IOException ioe) {
+			Log.e(TAG, "Could not read the content to hash.", ioe);
+			return null;
+		} finally {
+			releaseBuffer(buffer);
+		}
+		return digest.digest();
+	}
+
+	/**
+	 * Computes a hash for the content of the provided file, using the requested algorithm.  Large files are memory-mapped in regions
+	 * rather than read onto the heap.
+	 * @param input The file to hash
+	 * @param algorithm The algorithm to use
+	 * @return The raw hash, or null if no hash was computed.
+	 */
+	public static byte[] computeHashBytes(Path input, HashAlgorithm algorithm) {
+		if (input == null) {
+			return null;
+		}
+		FileChannel channel = null;
+		try {
+			channel = FileChannel.open(input, StandardOpenOption.READ);
+			return computeHashBytes(channel, algorithm);
+		} catch (IOException ioe) {
+			Log.e(TAG, "Could not open "+input+" to hash.", ioe);
+			return null;
+		} finally {
+			IOUtils.safeClose(channel);
+		}
+	}
+
+	/**
+	 * Computes a Merkle tree hash of a file, hashing chunks of {@link #TREE_HASH_CHUNK_SIZE} bytes in parallel on the shared fork/join pool.
+	 * @param input The file to hash
+	 * @param algorithm The algorithm to use for the leaves and nodes of the tree
+	 * @return The hexadecimal root hash, or an empty string if no hash was computed.
+	 * @see #computeTreeHashBytes(Path, HashAlgorithm, long, ForkJoinPool)
+	 */
+	public static String computeTreeHash(Path input, HashAlgorithm algorithm) {
+		return toHexString(computeTreeHashBytes(input, algorithm, TREE_HASH_CHUNK_SIZE, ConcurrencyUtils.getSharedForkJoinPool()));
+	}
+
+	/**
+	 * Computes a Merkle tree hash of a file, so that very large files can be hashed by several cores at once.  The file is split into
+	 * fixed-size chunks which are read with positional reads (or memory-mapped, if large enough) and hashed in parallel.  The tree
+	 * follows RFC 6962: a leaf is the hash of 0x00 followed by the chunk, a node is the hash of 0x01 followed by its children's hashes,
+	 * and each left subtree holds the largest power of two chunks that is less than the chunks beneath its parent.  An empty file
+	 * hashes to the hash of no input.  The root is not the same as the hash of the whole file, and depends on the chunk size.
+	 * @param input The file to hash
+	 * @param algorithm The algorithm to use for the leaves and nodes of the tree
+	 * @param chunkSize The size of each leaf of the tree
+	 * @param pool The pool to hash chunks on
+	 * @return The raw root hash, or null if no hash was computed.
+	 */
+	public static byte[] computeTreeHashBytes(Path input, HashAlgorithm algorithm, long chunkSize, ForkJoinPool pool) {
+		if (input == null || chunkSize <= 0 || pool == null) {
+			Log.w(TAG, "Not computing a tree hash as input is invalid.");
+			return null;
+		}
+		if (createDigest(algorithm) == null) {
+			return null;
+		}
+		FileChannel channel = null;
+		try {
+			channel = FileChannel.open(input, StandardOpenOption.READ);
+			long length = channel.size();
+			if (length == 0) {
+				return getThreadLocalDigest(algorithm).digest();
+			}
+			long chunks = (length + chunkSize - 1) / chunkSize;
+			return pool.invoke(new TreeHashTask(channel, algorithm, chunkSize, length, 0, chunks));
+		} catch (IOException ioe) {
+			Log.e(TAG, "Could not open "+input+" to hash.", ioe);
+			return null;
+		} catch (TreeHashException the) {
+			Log.e(TAG, "Could not read the content of "+input+" to hash.", the.getCause());
+			return null;
+		} finally {
+			IOUtils.safeClose(channel);
+		}
+	}
 
+	/**
+	 * Creates a new digest for the requested algorithm which the caller owns.  Digests are cloned from a cached prototype where the
+	 * security provider allows it, avoiding a provider lookup each time.
+	 * @param algorithm The algorithm to use
+	 * @return A new digest, or null if the algorithm is not supported
+	 */
+	public static MessageDigest createDigest(HashAlgorithm algorithm) {
+		if (algorithm == null) {
+			Log.w(TAG, "Unknown hash algorithm specified: "+algorithm);
+			return null;
+		}
 		try {
-			if (algorithm == HashAlgorithm.MD5) {
-				digest = MessageDigest.getInstance("MD5");
-			} else if (algorithm == HashAlgorithm.SHA1) {
-				digest = MessageDigest.getInstance("SHA-1");
-			} else if (algorithm == HashAlgorithm.SHA256) {
-				digest = MessageDigest.getInstance("SHA-256");
-			} else if (algorithm == HashAlgorithm.SHA512) {
-				digest = MessageDigest.getInstance("SHA-512");
-			} else {
-				Log.w(TAG, "Unknown hash algorithm specified: "+algorithm);
-				return new String();
+			MessageDigest prototype = PROTOTYPE_DIGESTS.get(algorithm.ordinal());
+			if (prototype == null) {
+				prototype = algorithm.newDigest();
+				PROTOTYPE_DIGESTS.set(algorithm.ordinal(), prototype);
+			}
+			try {
+				return (MessageDigest)prototype.clone();
+			} catch (CloneNotSupportedException cnse) {
+				return algorithm.newDigest();
 			}
 		} catch (NoSuchAlgorithmException nsae) {
 			Log.e(TAG, "The requested algorithm is not supported by the (default) security provider.",nsae);
+			return null;
 		}
-		if (digest == null) return new String();
-		// Read input stream and update digest
-		return ByteUtils.convertToHexString(digest.digest(input));
-	};
+	}
+
+	/**
+	 * Retrieves a reset digest for the requested algorithm which belongs to the calling thread, so that repeated hashing doesn't create a
+	 * new digest each time.  The digest must not be retained or handed to another thread, and is only valid until the next call on this thread.
+	 * @param algorithm The algorithm to use
+	 * @return This thread's digest for the algorithm, or null if the algorithm is not supported
+	 */
+	public static MessageDigest getThreadLocalDigest(HashAlgorithm algorithm) {
+		if (algorithm == null) {
+			Log.w(TAG, "Unknown hash algorithm specified: "+algorithm);
+			return null;
+		}
+		MessageDigest[] digests = THREAD_DIGESTS.get();
+		MessageDigest digest = digests[algorithm.ordinal()];
+		if (digest == null) {
+			digest = createDigest(algorithm);
+			digests[algorithm.ordinal()] = digest;
+		} else {
+			digest.reset();
+		}
+		return digest;
+	}
+
+	/**
+	 * Hands back a buffer taken with {@link #borrowBuffer()}, so that the calling thread can reuse it
+	 * @param buffer The buffer, which must not be used afterwards
+	 */
+	private static void releaseBuffer(byte[] buffer) {
+		THREAD_BUFFER.set(buffer);
+	}
+
+	/**
+	 * Converts a raw hash into a hexadecimal string
+	 * @param hash The hash to convert
+	 * @return The hexadecimal hash, or an empty string if there is no hash
+	 */
+	protected static String toHexString(byte[] hash) {
+		return hash == null ? new String() : ByteUtils.convertToHexString(hash);
+	}
+
+	/**
+	 * Updates a digest with a region of a channel.  Large regions are memory-mapped, while small ones are read through a reusable buffer.
+	 * @param digest The digest to update
+	 * @param channel The channel to read from
+	 * @param position The position of the start of the region
+	 * @param length The length of the region
+	 * @throws IOException If the channel could not be read
+	 */
+	protected static void update(MessageDigest digest, FileChannel channel, long position, long length) throws IOException {
+		long end = position + length;
+		if (length >= MEMORY_MAP_THRESHOLD) {
+			for (long offset = position; offset < end; offset += MAPPED_REGION_SIZE) {
+				digest.update(channel.map(MapMode.READ_ONLY, offset, Math.min(MAPPED_REGION_SIZE, end - offset)));
+			}
+			return;
+		}
+		byte[] buffer = borrowBuffer();
+		try {
+			ByteBuffer wrapper = ByteBuffer.wrap(buffer);
+			for (long offset = position; offset < end; ) {
+				wrapper.clear();
+				wrapper.limit((int)Math.min(buffer.length, end - offset));
+				int readBytes = channel.read(wrapper, offset);
+				if (readBytes == -1) {
+					break;
+				}
+				digest.update(buffer, 0, readBytes);
+				offset += readBytes;
+			}
+		} finally {
+			releaseBuffer(buffer);
+		}
+	}
 
 	private static final String TAG = CryptoUtils.class.getSimpleName();
+
+	/**
+	 * Files and regions of at least this many bytes are memory-mapped when hashed, rather than read through a buffer
+	 */
+	public static final long MEMORY_MAP_THRESHOLD = 1024 * 1024;
+
+	/**
+	 * The size of the regions large files are memory-mapped in while they are hashed
+	 */
+	protected static final long MAPPED_REGION_SIZE = 64L * 1024 * 1024;
+
+	/**
+	 * The size of the buffer streams and small regions of files are read through while they are hashed
+	 */
+	protected static final int BUFFER_SIZE = 32 * 1024;
+
+	/**
+	 * The default size of the chunks hashed as the leaves of a tree hash
+	 */
+	public static final long TREE_HASH_CHUNK_SIZE = 4L * 1024 * 1024;
+
+	private static final byte TREE_LEAF_PREFIX = 0x00;
+
+	private static final byte TREE_NODE_PREFIX = 0x01;
+
+	/**
+	 * Unused digests for each algorithm, cloned to avoid looking up the algorithm from the security provider
+	 */
+	private static final AtomicReferenceArray<MessageDigest> PROTOTYPE_DIGESTS = new AtomicReferenceArray<MessageDigest>(HashAlgorithm.values().length);
+
+	private static final ThreadLocal<MessageDigest[]> THREAD_DIGESTS = new ThreadLocal<MessageDigest[]>() {
+		@Override
+		protected MessageDigest[] initialValue() {
+			return new MessageDigest[HashAlgorithm.values().length];
+		}
+	};
+
+	/**
+	 * Each thread's read buffer, which is null while it is borrowed
+	 */
+	private static final ThreadLocal<byte[]> THREAD_BUFFER = new ThreadLocal<byte[]>();
 }
@@ -0,0 +1,590 @@
+/*
+ * Copyright 2015 Kevin Quan (kevin.quan@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kevinquan.utils.crypto;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+
+/**
+ * Fast, non-cryptographic hashes for cache keys, deduplication and checksums, where resistance to deliberate collisions doesn't matter.
+ * The static methods operate on arrays and buffers without allocating and return primitive values.  The digest classes compute the same
+ * hashes incrementally, and are what {@link CryptoUtils.HashAlgorithm#XXHASH64}, {@link CryptoUtils.HashAlgorithm#MURMUR3_128} and
+ * {@link CryptoUtils.HashAlgorithm#CRC32C} use.
+ *
+ * @author Kevin Quan (kevin.quan@gmail.com)
+ *
+ */
+public class FastHashUtils {
+
+    /**
+     * Computes CRC32C (Castagnoli) incrementally.  The digest is the checksum as 4 big-endian bytes.
+     */
+    public static class Crc32cDigest extends MessageDigest implements Cloneable {
+
+        protected int mCrc;
+
+        public Crc32cDigest() {
+            super(CRC32C_NAME);
+            engineReset();
+        }
+
+        @Override
+        protected byte[] engineDigest() {
+            int crc = ~mCrc;
+            engineReset();
+            return new byte[] {(byte)(crc >>> 24), (byte)(crc >>> 16), (byte)(crc >>> 8), (byte)crc};
+        }
+
+        @Override
+        protected int engineGetDigestLength() {
+            return 4;
+        }
+
+        @Override
+        protected void engineReset() {
+            mCrc = ~0;
+        }
+
+        @Override
+        protected void engineUpdate(byte input) {
+            mCrc = (mCrc >>> 8) ^ CRC32C_TABLE[0][(mCrc ^ input) & 0xff];
+        }
+
+        @Override
+        protected void engineUpdate(byte[] input, int offset, int length) {
+            mCrc = updateCrc32c(mCrc, input, null, offset, length);
+        }
+    }
+
+    /**
+     * Computes the 128 bit x64 variant of MurmurHash3 incrementally, with a seed of 0.  The digest is the two 64 bit halves of the hash,
+     * each as little-endian bytes, matching the reference implementation's output.
+     */
+    public static class Murmur3Digest extends MessageDigest implements Cloneable {
+
+        protected long mH1;
+        protected long mH2;
+        protected long mLength;
+        protected byte[] mPending = new byte[MURMUR3_BLOCK_SIZE];
+        protected int mPendingCount;
+
+        public Murmur3Digest() {
+            super(MURMUR3_128_NAME);
+        }
+
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            Murmur3Digest copy = (Murmur3Digest)super.clone();
+            copy.mPending = mPending.clone();
+            return copy;
+        }
+
+        @Override
+        protected byte[] engineDigest() {
+            long[] hash = new long[2];
+            finishMurmur3(mH1, mH2, mPending, null, 0, mPendingCount, mLength, hash);
+            engineReset();
+            byte[] result = new byte[16];
+            for (int i = 0; i < 8; i++) {
+                result[i] = (byte)(hash[0] >>> (8 * i));
+                result[i + 8] = (byte)(hash[1] >>> (8 * i));
+            }
+            return result;
+        }
+
+        @Override
+        protected int engineGetDigestLength() {
+            return 16;
+        }
+
+        @Override
+        protected void engineReset() {
+            mH1 = 0;
+            mH2 = 0;
+            mLength = 0;
+            mPendingCount = 0;
+        }
+
+        @Override
+        protected void engineUpdate(byte input) {
+            mPending[mPendingCount++] = input;
+            mLength++;
+            if (mPendingCount == MURMUR3_BLOCK_SIZE) {
+                processPending();
+            }
+        }
+
+        @Override
+        protected void engineUpdate(byte[] input, int offset, int length) {
+            mLength += length;
+            int end = offset + length;
+            if (mPendingCount > 0) {
+                int count = Math.min(length, MURMUR3_BLOCK_SIZE - mPendingCount);
+                System.arraycopy(input, offset, mPending, mPendingCount, count);
+                mPendingCount += count;
+                offset += count;
+                if (mPendingCount < MURMUR3_BLOCK_SIZE) {
+                    return;
+                }
+                processPending();
+            }
+            for (; offset + MURMUR3_BLOCK_SIZE <= end; offset += MURMUR3_BLOCK_SIZE) {
+                long k1 = mixMurmur3K1(getLongLE(input, null, offset));
+                long k2 = mixMurmur3K2(getLongLE(input, null, offset + 8));
+                mH1 = mixMurmur3H1(mH1 ^ k1, mH2);
+                mH2 = mixMurmur3H2(mH2 ^ k2, mH1);
+            }
+            mPendingCount = end - offset;
+            System.arraycopy(input, offset, mPending, 0, mPendingCount);
+        }
+
+        protected void processPending() {
+            long k1 = mixMurmur3K1(getLongLE(mPending, null, 0));
+            long k2 = mixMurmur3K2(getLongLE(mPending, null, 8));
+            mH1 = mixMurmur3H1(mH1 ^ k1, mH2);
+            mH2 = mixMurmur3H2(mH2 ^ k2, mH1);
+            mPendingCount = 0;
+        }
+    }
+
+    /**
+     * Computes XXH64 incrementally, with a seed of 0.  The digest is the hash as 8 big-endian bytes, matching the reference
+     * implementation's canonical form.
+     */
+    public static class XxHash64Digest extends MessageDigest implements Cloneable {
+
+        protected long mV1;
+        protected long mV2;
+        protected long mV3;
+        protected long mV4;
+        protected long mLength;
+        protected byte[] mPending = new byte[XXHASH64_STRIPE_SIZE];
+        protected int mPendingCount;
+
+        public XxHash64Digest() {
+            super(XXHASH64_NAME);
+            engineReset();
+        }
+
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            XxHash64Digest copy = (XxHash64Digest)super.clone();
+            copy.mPending = mPending.clone();
+            return copy;
+        }
+
+        @Override
+        protected byte[] engineDigest() {
+            long hash = mLength >= XXHASH64_STRIPE_SIZE ? mergeXxHash64Lanes(mV1, mV2, mV3, mV4) : XXHASH64_PRIME_5;
+            hash = finishXxHash64(hash + mLength, mPending, null, 0, mPendingCount);
+            engineReset();
+            byte[] result = new byte[8];
+            for (int i = 0; i < 8; i++) {
+                result[i] = (byte)(hash >>> (56 - 8 * i));
+            }
+            return result;
+        }
+
+        @Override
+        protected int engineGetDigestLength() {
+            return 8;
+        }
+
+        @Override
+        protected void engineReset() {
+            mV1 = XXHASH64_PRIME_1 + XXHASH64_PRIME_2;
+            mV2 = XXHASH64_PRIME_2;
+            mV3 = 0;
+            mV4 = -XXHASH64_PRIME_1;
+            mLength = 0;
+            mPendingCount = 0;
+        }
+
+        @Override
+        protected void engineUpdate(byte input) {
+            mPending[mPendingCount++] = input;
+            mLength++;
+            if (mPendingCount == XXHASH64_STRIPE_SIZE) {
+                processStripe(mPending, 0);
+                mPendingCount = 0;
+            }
+        }
+
+        @Override
+        protected void engineUpdate(byte[] input, int offset, int length) {
+            mLength += length;
+            int end = offset + length;
+            if (mPendingCount > 0) {
+                int count = Math.min(length, XXHASH64_STRIPE_SIZE - mPendingCount);
+                System.arraycopy(input, offset, mPending, mPendingCount, count);
+                mPendingCount += count;
+                offset += count;
+                if (mPendingCount < XXHASH64_STRIPE_SIZE) {
+                    return;
+                }
+                processStripe(mPending, 0);
+            }
+            for (; offset + XXHASH64_STRIPE_SIZE <= end; offset += XXHASH64_STRIPE_SIZE) {
+                processStripe(input, offset);
+            }
+            mPendingCount = end - offset;
+            System.arraycopy(input, offset, mPending, 0, mPendingCount);
+        }
+
+        protected void processStripe(byte[] input, int offset) {
+            mV1 = roundXxHash64(mV1, getLongLE(input, null, offset));
+            mV2 = roundXxHash64(mV2, getLongLE(input, null, offset + 8));
+            mV3 = roundXxHash64(mV3, getLongLE(input, null, offset + 16));
+            mV4 = roundXxHash64(mV4, getLongLE(input, null, offset + 24));
+        }
+    }
+
+    /**
+     * Computes the CRC32C (Castagnoli) checksum of a region of an array
+     * @param input The array to checksum
+     * @param offset The offset of the first byte to checksum
+     * @param length The number of bytes to checksum
+     * @return The checksum as an unsigned 32 bit value, as {@link java.util.zip.Checksum#getValue()} would return it
+     */
+    public static long crc32c(byte[] input, int offset, int length) {
+        return ~updateCrc32c(~0, input, null, offset, length) & 0xffffffffL;
+    }
+
+    /**
+     * Computes the CRC32C (Castagnoli) checksum of the remaining content of a buffer.  The buffer's position is not changed.
+     * @param input The buffer to checksum
+     * @return The checksum as an unsigned 32 bit value, as {@link java.util.zip.Checksum#getValue()} would return it
+     */
+    public static long crc32c(ByteBuffer input) {
+        if (input.hasArray()) {
+            return crc32c(input.array(), input.arrayOffset() + input.position(), input.remaining());
+        }
+        return ~updateCrc32c(~0, null, input, input.position(), input.remaining()) & 0xffffffffL;
+    }
+
+    /**
+     * Computes the 128 bit x64 variant of MurmurHash3 for a region of an array, without allocating
+     * @param input The array to hash
+     * @param offset The offset of the first byte to hash
+     * @param length The number of bytes to hash
+     * @param seed The seed, which is treated as unsigned
+     * @param destination An array of at least two elements, which receives the first and second 64 bit halves of the hash
+     */
+    public static void murmur3Hash128(byte[] input, int offset, int length, int seed, long[] destination) {
+        murmur3Hash128(input, null, offset, length, seed, destination);
+    }
+
+    /**
+     * Computes the 128 bit x64 variant of MurmurHash3 for the remaining content of a buffer, without allocating.  The buffer's
+     * position is not changed.
+     * @param input The buffer to hash
+     * @param seed The seed, which is treated as unsigned
+     * @param destination An array of at least two elements, which receives the first and second 64 bit halves of the hash
+     */
+    public static void murmur3Hash128(ByteBuffer input, int seed, long[] destination) {
+        if (input.hasArray()) {
+            murmur3Hash128(input.array(), null, input.arrayOffset() + input.position(), input.remaining(), seed, destination);
+        } else {
+            murmur3Hash128(null, input, input.position(), input.remaining(), seed, destination);
+        }
+    }
+
+    /**
+     * Computes the first 64 bit half of the 128 bit x64 variant of MurmurHash3 for a region of an array, without allocating
+     * @param input The array to hash
+     * @param offset The offset of the first byte to hash
+     * @param length The number of bytes to hash
+     * @param seed The seed, which is treated as unsigned
+     * @return The first half of the hash
+     */
+    public static long murmur3Hash64(byte[] input, int offset, int length, int seed) {
+        long h1 = seed & 0xffffffffL;
+        long h2 = h1;
+        int end = offset + (length & ~(MURMUR3_BLOCK_SIZE - 1));
+        for (int i = offset; i < end; i += MURMUR3_BLOCK_SIZE) {
+            h1 = mixMurmur3H1(h1 ^ mixMurmur3K1(getLongLE(input, null, i)), h2);
+            h2 = mixMurmur3H2(h2 ^ mixMurmur3K2(getLongLE(input, null, i + 8)), h1);
+        }
+        return finishMurmur3(h1, h2, input, null, end, length & (MURMUR3_BLOCK_SIZE - 1), length, null);
+    }
+
+    /**
+     * Computes XXH64 for a region of an array, without allocating
+     * @param input The array to hash
+     * @param offset The offset of the first byte to hash
+     * @param length The number of bytes to hash
+     * @param seed The seed
+     * @return The hash
+     */
+    public static long xxHash64(byte[] input, int offset, int length, long seed) {
+        return xxHash64(input, null, offset, length, seed);
+    }
+
+    /**
+     * Computes XXH64 for the remaining content of a buffer, without allocating.  The buffer's position is not changed.
+     * @param input The buffer to hash
+     * @param seed The seed
+     * @return The hash
+     */
+    public static long xxHash64(ByteBuffer input, long seed) {
+        if (input.hasArray()) {
+            return xxHash64(input.array(), null, input.arrayOffset() + input.position(), input.remaining(), seed);
+        }
+        return xxHash64(null, input, input.position(), input.remaining(), seed);
+    }
+
+    /**
+     * Applies the final tail and avalanche of MurmurHash3
+     * @param h1 The first half of the state
+     * @param h2 The second half of the state
+     * @param array The array holding the tail, or null to use the buffer
+     * @param buffer The buffer holding the tail, if there is no array
+     * @param offset The offset of the tail
+     * @param tailLength The length of the tail, which is less than a block
+     * @param totalLength The total length of the input
+     * @param destination An array to receive both halves of the hash, or null if only the first half is needed
+     * @return The first half of the hash
+     */
+    protected static long finishMurmur3(long h1, long h2, byte[] array, ByteBuffer buffer, int offset, int tailLength, long totalLength, long[] destination) {
+        long k1 = 0;
+        long k2 = 0;
+        for (int i = tailLength - 1; i >= 8; i--) {
+            k2 = (k2 << 8) | (getByte(array, buffer, offset + i) & 0xffL);
+        }
+        for (int i = Math.min(tailLength, 8) - 1; i >= 0; i--) {
+            k1 = (k1 << 8) | (getByte(array, buffer, offset + i) & 0xffL);
+        }
+        if (tailLength > 8) {
+            h2 ^= mixMurmur3K2(k2);
+        }
+        if (tailLength > 0) {
+            h1 ^= mixMurmur3K1(k1);
+        }
+        h1 ^= totalLength;
+        h2 ^= totalLength;
+        h1 += h2;
+        h2 += h1;
+        h1 = mixMurmur3Final(h1);
+        h2 = mixMurmur3Final(h2);
+        h1 += h2;
+        h2 += h1;
+        if (destination != null) {
+            destination[0] = h1;
+            destination[1] = h2;
+        }
+        return h1;
+    }
+
+    /**
+     * Applies the final lanes, tail and avalanche of XXH64
+     * @param hash The hash of the stripes, plus the total length of the input
+     * @param array The array holding the tail, or null to use the buffer
+     * @param buffer The buffer holding the tail, if there is no array
+     * @param offset The offset of the tail
+     * @param length The length of the tail, which is less than a stripe
+     * @return The hash
+     */
+    protected static long finishXxHash64(long hash, byte[] array, ByteBuffer buffer, int offset, int length) {
+        int end = offset + length;
+        for (; offset + 8 <= end; offset += 8) {
+            hash ^= roundXxHash64(0, getLongLE(array, buffer, offset));
+            hash = Long.rotateLeft(hash, 27) * XXHASH64_PRIME_1 + XXHASH64_PRIME_4;
+        }
+        if (offset + 4 <= end) {
+            hash ^= (getIntLE(array, buffer, offset) & 0xffffffffL) * XXHASH64_PRIME_1;
+            hash = Long.rotateLeft(hash, 23) * XXHASH64_PRIME_2 + XXHASH64_PRIME_3;
+            offset += 4;
+        }
+        for (; offset < end; offset++) {
+            hash ^= (getByte(array, buffer, offset) & 0xffL) * XXHASH64_PRIME_5;
+            hash = Long.rotateLeft(hash, 11) * XXHASH64_PRIME_1;
+        }
+        hash ^= hash >>> 33;
+        hash *= XXHASH64_PRIME_2;
+        hash ^= hash >>> 29;
+        hash *= XXHASH64_PRIME_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    protected static byte getByte(byte[] array, ByteBuffer buffer, int index) {
+        return array != null ? array[index] : buffer.get(index);
+    }
+
+    protected static int getIntLE(byte[] array, ByteBuffer buffer, int index) {
+        if (array == null) {
+            int value = buffer.getInt(index);
+            return buffer.order() == ByteOrder.LITTLE_ENDIAN ? value : Integer.reverseBytes(value);
+        }
+        return (array[index] & 0xff)
+                | (array[index + 1] & 0xff) << 8
+                | (array[index + 2] & 0xff) << 16
+                | (array[index + 3] & 0xff) << 24;
+    }
+
+    protected static long getLongLE(byte[] array, ByteBuffer buffer, int index) {
+        if (array == null) {
+            long value = buffer.getLong(index);
+            return buffer.order() == ByteOrder.LITTLE_ENDIAN ? value : Long.reverseBytes(value);
+        }
+        return (array[index] & 0xffL)
+                | (array[index + 1] & 0xffL) << 8
+                | (array[index + 2] & 0xffL) << 16
+                | (array[index + 3] & 0xffL) << 24
+                | (array[index + 4] & 0xffL) << 32
+                | (array[index + 5] & 0xffL) << 40
+                | (array[index + 6] & 0xffL) << 48
+                | (array[index + 7] & 0xffL) << 56;
+    }
+
+    protected static long mergeXxHash64Lanes(long v1, long v2, long v3, long v4) {
+        long hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+        hash = (hash ^ roundXxHash64(0, v1)) * XXHASH64_PRIME_1 + XXHASH64_PRIME_4;
+        hash = (hash ^ roundXxHash64(0, v2)) * XXHASH64_PRIME_1 + XXHASH64_PRIME_4;
+        hash = (hash ^ roundXxHash64(0, v3)) * XXHASH64_PRIME_1 + XXHASH64_PRIME_4;
+        hash = (hash ^ roundXxHash64(0, v4)) * XXHASH64_PRIME_1 + XXHASH64_PRIME_4;
+        return hash;
+    }
+
+    protected static long mixMurmur3Final(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    protected static long mixMurmur3H1(long h1, long h2) {
+        return (Long.rotateLeft(h1, 27) + h2) * 5 + 0x52dce729;
+    }
+
+    protected static long mixMurmur3H2(long h2, long h1) {
+        return (Long.rotateLeft(h2, 31) + h1) * 5 + 0x38495ab5;
+    }
+
+    protected static long mixMurmur3K1(long k1) {
+        return Long.rotateLeft(k1 * MURMUR3_C1, 31) * MURMUR3_C2;
+    }
+
+    protected static long mixMurmur3K2(long k2) {
+        return Long.rotateLeft(k2 * MURMUR3_C2, 33) * MURMUR3_C1;
+    }
+
+    protected static void murmur3Hash128(byte[] array, ByteBuffer buffer, int offset, int length, int seed, long[] destination) {
+        long h1 = seed & 0xffffffffL;
+        long h2 = h1;
+        int end = offset + (length & ~(MURMUR3_BLOCK_SIZE - 1));
+        for (int i = offset; i < end; i += MURMUR3_BLOCK_SIZE) {
+            h1 = mixMurmur3H1(h1 ^ mixMurmur3K1(getLongLE(array, buffer, i)), h2);
+            h2 = mixMurmur3H2(h2 ^ mixMurmur3K2(getLongLE(array, buffer, i + 8)), h1);
+        }
+        finishMurmur3(h1, h2, array, buffer, end, length & (MURMUR3_BLOCK_SIZE - 1), length, destination);
+    }
+
+    protected static long roundXxHash64(long accumulator, long lane) {
+        return Long.rotateLeft(accumulator + lane * XXHASH64_PRIME_2, 31) * XXHASH64_PRIME_1;
+    }
+
+    /**
+     * Updates a CRC32C eight bytes at a time
+     * @param crc The current (inverted) checksum
+     * @param array The array holding the input, or null to use the buffer
+     * @param buffer The buffer holding the input, if there is no array
+     * @param offset The offset of the input
+     * @param length The length of the input
+     * @return The updated (inverted) checksum
+     */
+    protected static int updateCrc32c(int crc, byte[] array, ByteBuffer buffer, int offset, int length) {
+        int end = offset + length;
+        for (; offset + 8 <= end; offset += 8) {
+            long word = getLongLE(array, buffer, offset) ^ (crc & 0xffffffffL);
+            crc = CRC32C_TABLE[7][(int)word & 0xff]
+                    ^ CRC32C_TABLE[6][(int)(word >>> 8) & 0xff]
+                    ^ CRC32C_TABLE[5][(int)(word >>> 16) & 0xff]
+                    ^ CRC32C_TABLE[4][(int)(word >>> 24) & 0xff]
+                    ^ CRC32C_TABLE[3][(int)(word >>> 32) & 0xff]
+                    ^ CRC32C_TABLE[2][(int)(word >>> 40) & 0xff]
+                    ^ CRC32C_TABLE[1][(int)(word >>> 48) & 0xff]
+                    ^ CRC32C_TABLE[0][(int)(word >>> 56) & 0xff];
+        }
+        for (; offset < end; offset++) {
+            crc = (crc >>> 8) ^ CRC32C_TABLE[0][(crc ^ getByte(array, buffer, offset)) & 0xff];
+        }
+        return crc;
+    }
+
+    protected static long xxHash64(byte[] array, ByteBuffer buffer, int offset, int length, long seed) {
+        int end = offset + length;
+        long hash;
+        if (length >= XXHASH64_STRIPE_SIZE) {
+            long v1 = seed + XXHASH64_PRIME_1 + XXHASH64_PRIME_2;
+            long v2 = seed + XXHASH64_PRIME_2;
+            long v3 = seed;
+            long v4 = seed - XXHASH64_PRIME_1;
+            for (; offset + XXHASH64_STRIPE_SIZE <= end; offset += XXHASH64_STRIPE_SIZE) {
+                v1 = roundXxHash64(v1, getLongLE(array, buffer, offset));
+                v2 = roundXxHash64(v2, getLongLE(array, buffer, offset + 8));
+                v3 = roundXxHash64(v3, getLongLE(array, buffer, offset + 16));
+                v4 = roundXxHash64(v4, getLongLE(array, buffer, offset + 24));
+            }
+            hash = mergeXxHash64Lanes(v1, v2, v3, v4);
+        } else {
+            hash = seed + XXHASH64_PRIME_5;
+        }
+        return finishXxHash64(hash + length, array, buffer, offset, end - offset);
+    }
+
+    @SuppressWarnings("unused")
+    private static final String TAG = FastHashUtils.class.getSimpleName();
+
+    public static final String CRC32C_NAME = "CRC32C";
+    public static final String MURMUR3_128_NAME = "MURMUR3-128";
+    public static final String XXHASH64_NAME = "XXH64";
+
+    protected static final int MURMUR3_BLOCK_SIZE = 16;
+    protected static final long MURMUR3_C1 = 0x87c37b91114253d5L;
+    protected static final long MURMUR3_C2 = 0x4cf5ad432745937fL;
+
+    protected static final int XXHASH64_STRIPE_SIZE = 32;
+    protected static final long XXHASH64_PRIME_1 = 0x9e3779b185ebca87L;
+    protected static final long XXHASH64_PRIME_2 = 0xc2b2ae3d27d4eb4fL;
+    protected static final long XXHASH64_PRIME_3 = 0x165667b19e3779f9L;
+    protected static final long XXHASH64_PRIME_4 = 0x85ebca77c2b2ae63L;
+    protected static final long XXHASH64_PRIME_5 = 0x27d4eb2f165667c5L;
+
+    /**
+     * Slicing-by-8 tables for the reflected Castagnoli polynomial
+     */
+    protected static final int[][] CRC32C_TABLE = new int[8][256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0x82f63b78 : crc >>> 1;
+            }
+            CRC32C_TABLE[0][i] = crc;
+        }
+        for (int i = 0; i < 256; i++) {
+            for (int table = 1; table < 8; table++) {
+                int previous = CRC32C_TABLE[table - 1][i];
+                CRC32C_TABLE[table][i] = (previous >>> 8) ^ CRC32C_TABLE[0][previous & 0xff];
+            }
+        }
+    }
+}
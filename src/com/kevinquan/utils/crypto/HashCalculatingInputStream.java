@@ -19,14 +19,17 @@ import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.Map;
 
 import com.kevinquan.android.stubs.Log;
 import com.kevinquan.utils.ByteUtils;
 import com.kevinquan.utils.crypto.CryptoUtils.HashAlgorithm;
 
 /**
- * Compute a hash as input content becomes available.
+ * Compute a hash as input content becomes available.  Content is hashed as it is consumed, including content which is skipped.
+ * Single bytes are read through an internal buffer, so there is no need to wrap the stream in a BufferedInputStream.  Mark and
+ * reset are not supported, as content which has been hashed cannot be read again.
  * @author Kevin Quan (kevin.quan@gmail.com)
  *
  */
@@ -34,73 +37,224 @@ public class HashCalculatingInputStream extends FilterInputStream {
 
     private static final String TAG = HashCalculatingInputStream.class.getSimpleName();
 
-    public static int BUFFER_SIZE = 1024;
+    /**
+     * The size of the buffer used for single byte reads, unless another size is requested
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
 
     protected HashAlgorithm mAlgorithm;
     protected MessageDigest mDigest;
+    protected HashAlgorithm[] mAlgorithms;
+    protected MessageDigest[] mDigests;
+    protected String[] mHashes;
+    protected int mBufferSize;
     protected byte[] mBuffer;
+    /** The position of the next byte to return from the buffer */
     protected int mPointer;
+    /** The position after the last valid byte in the buffer */
+    protected int mLimit;
+    /** The position of the first byte in the buffer which has been consumed but not yet hashed */
+    protected int mHashedPointer;
 
     public HashCalculatingInputStream(InputStream in, HashAlgorithm algorithm) {
+        this(in, new HashAlgorithm[] {algorithm});
+    }
+
+    /**
+     * Computes several hashes of the content in a single pass, updating every digest from each buffer that is read.
+     * @param in The stream to read from
+     * @param algorithms The algorithms to compute hashes with.  The first algorithm is the one returned by {@link #getHash()}.
+     */
+    public HashCalculatingInputStream(InputStream in, HashAlgorithm... algorithms) {
+        this(in, DEFAULT_BUFFER_SIZE, algorithms);
+    }
+
+    /**
+     * Computes several hashes of the content in a single pass, updating every digest from each buffer that is read.
+     * @param in The stream to read from
+     * @param bufferSize The size of the buffer used for single byte reads
+     * @param algorithms The algorithms to compute hashes with.  The first algorithm is the one returned by {@link #getHash()}.
+     */
+    public HashCalculatingInputStream(InputStream in, int bufferSize, HashAlgorithm... algorithms) {
         super(in);
-        mAlgorithm = algorithm;
-
-        try {
-            if (algorithm == HashAlgorithm.MD5) {
-                mDigest = MessageDigest.getInstance("MD5");
-            } else if (algorithm == HashAlgorithm.SHA1) {
-                mDigest = MessageDigest.getInstance("SHA-1");
-            } else if (algorithm == HashAlgorithm.SHA256) {
-                mDigest = MessageDigest.getInstance("SHA-256");
-            } else if (algorithm == HashAlgorithm.SHA512) {
-                mDigest = MessageDigest.getInstance("SHA-512");
-            } else {
-                Log.w(TAG, "Unknown hash algorithm specified.");
-            }
-        } catch (NoSuchAlgorithmException nsae) {
-            Log.e(TAG, "The requested algorithm is not supported by the (default) security provider.", nsae);
+        mBufferSize = Math.max(1, bufferSize);
+        mAlgorithms = algorithms == null ? new HashAlgorithm[] {} : algorithms.clone();
+        mDigests = new MessageDigest[mAlgorithms.length];
+        for (int i = 0; i < mAlgorithms.length; i++) {
+            mDigests[i] = CryptoUtils.createDigest(mAlgorithms[i]);
+        }
+        if (mAlgorithms.length > 0) {
+            mAlgorithm = mAlgorithms[0];
+            mDigest = mDigests[0];
         }
-        mPointer= 0;
     }
 
+    /**
+     * Retrieves the hash of the content read so far using the first algorithm.  Once any hash has been retrieved, the hashes
+     * are final and are not updated by further reads.
+     * @return The hexadecimal hash, or null if it could not be computed
+     */
     public String getHash() {
-        if (mDigest == null) return null;
-        // This .toLowerCase() is ok - we are only using ASCII a-f
-        return ByteUtils.convertToHexString(mDigest.digest());
+        if (mAlgorithm == null) return null;
+        return getHash(mAlgorithm);
+    }
+
+    /**
+     * Retrieves the hash of the content read so far using the provided algorithm.  Once any hash has been retrieved, the hashes
+     * are final and are not updated by further reads.
+     * @param algorithm The algorithm whose hash to retrieve
+     * @return The hexadecimal hash, or null if the algorithm is not being computed by this stream
+     */
+    public String getHash(HashAlgorithm algorithm) {
+        completeHashes();
+        for (int i = 0; i < mAlgorithms.length; i++) {
+            if (mAlgorithms[i] == algorithm) {
+                return mHashes[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the hashes of the content read so far for every algorithm being computed.  Once any hash has been retrieved,
+     * the hashes are final and are not updated by further reads.
+     * @return The hexadecimal hashes by algorithm.  Algorithms which are not supported are omitted.
+     */
+    public Map<HashAlgorithm, String> getHashes() {
+        completeHashes();
+        Map<HashAlgorithm, String> hashes = new EnumMap<HashAlgorithm, String>(HashAlgorithm.class);
+        for (int i = 0; i < mAlgorithms.length; i++) {
+            if (mHashes[i] != null) {
+                hashes.put(mAlgorithms[i], mHashes[i]);
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Finalizes every digest, if it hasn't been done already
+     */
+    protected void completeHashes() {
+        if (mHashes != null) {
+            return;
+        }
+        updateDigestsFromBuffer();
+        String[] hashes = new String[mDigests.length];
+        for (int i = 0; i < mDigests.length; i++) {
+            if (mDigests[i] != null) {
+                hashes[i] = ByteUtils.convertToHexString(mDigests[i].digest());
+            }
+        }
+        mHashes = hashes;
+    }
+
+    /**
+     * Updates every digest with a region of content, unless the hashes have already been finalized
+     * @param buffer The buffer holding the content
+     * @param offset The offset of the content in the buffer
+     * @param count The length of the content
+     */
+    protected void updateDigests(byte[] buffer, int offset, int count) {
+        if (mHashes != null) {
+            return;
+        }
+        for (MessageDigest digest : mDigests) {
+            if (digest != null) {
+                digest.update(buffer, offset, count);
+            }
+        }
     }
 
+    @Override
+    public int available() throws IOException {
+        return (mLimit - mPointer) + super.available();
+    }
+
+    /**
+     * Refills the internal buffer from the underlying stream, once all of its content has been consumed
+     * @return True if there is content in the buffer, or false if the end of the stream has been reached
+     * @throws IOException If the underlying stream could not be read
+     */
+    protected boolean fillBuffer() throws IOException {
+        updateDigestsFromBuffer();
+        if (mBuffer == null) {
+            mBuffer = new byte[mBufferSize];
+        }
+        int readBytes = in.read(mBuffer, 0, mBuffer.length);
+        mPointer = 0;
+        mHashedPointer = 0;
+        mLimit = Math.max(0, readBytes);
+        return readBytes > 0;
+    }
+
+    @Override
+    public void mark(int readLimit) {}
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
 
     @Override
     public int read() throws IOException {
-        if (mBuffer == null || mPointer >= mBuffer.length) {
-            mBuffer = new byte[BUFFER_SIZE];
-            // Populate buffer
-            int readBytes = super.read(mBuffer);
-            if (readBytes == -1) {
-                return -1;
-            } else if (readBytes < BUFFER_SIZE) {
-                // Resize buffer so we don't have to take care of boundary conditions later
-                byte[] smallerBuffer = new byte[readBytes];
-                System.arraycopy(mBuffer, 0, smallerBuffer, 0, readBytes);
-                mBuffer = smallerBuffer;
-            }
-            // Perform intermediate hash
-            mDigest.update(mBuffer);
-            mPointer = 0;
+        if (mPointer >= mLimit && !fillBuffer()) {
+            return -1;
         }
-        return mBuffer[mPointer++];
+        return mBuffer[mPointer++] & 0xff;
     }
 
     @Override
     public int read(byte[] buffer, int offset, int count) throws IOException {
-        int bytesRead = super.read(buffer, offset, count);
-        if (bytesRead != -1) {
+        if (count <= 0) {
+            return 0;
+        }
+        if (mPointer < mLimit) {
+            // Drain what has already been buffered by single byte reads before reading any further
+            int bytesRead = Math.min(count, mLimit - mPointer);
+            System.arraycopy(mBuffer, mPointer, buffer, offset, bytesRead);
+            mPointer += bytesRead;
+            return bytesRead;
+        }
+        // Content consumed from the buffer has to be hashed before anything read after it
+        updateDigestsFromBuffer();
+        int bytesRead = in.read(buffer, offset, count);
+        if (bytesRead > 0) {
             try {
-                mDigest.update(buffer, offset, bytesRead);
+                updateDigests(buffer, offset, bytesRead);
             } catch (Exception e) {
                 Log.e(TAG, "Could not perform intermediate digest",e);
             }
         }
         return bytesRead;
     }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("Mark and reset are not supported as hashed content cannot be read again");
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        // Skipped content still needs to be hashed, so it is read through the buffer rather than skipped in the underlying stream
+        long skipped = 0;
+        while (skipped < count) {
+            if (mPointer >= mLimit && !fillBuffer()) {
+                break;
+            }
+            int bytesSkipped = (int)Math.min(count - skipped, mLimit - mPointer);
+            mPointer += bytesSkipped;
+            skipped += bytesSkipped;
+        }
+        return skipped;
+    }
+
+    /**
+     * Updates every digest with the content of the buffer which has been consumed since the buffer was last hashed
+     */
+    protected void updateDigestsFromBuffer() {
+        if (mPointer > mHashedPointer) {
+            updateDigests(mBuffer, mHashedPointer, mPointer - mHashedPointer);
+            mHashedPointer = mPointer;
+        }
+    }
 }
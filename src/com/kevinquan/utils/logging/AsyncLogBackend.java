@@ -0,0 +1,340 @@
+/*
+ * Copyright 2015 Kevin Quan (kevin.quan@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kevinquan.utils.logging;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import com.kevinquan.android.stubs.Log;
+
+/**
+ * Writes log records on a background thread, so that logging threads only pay for adding a record to a queue.  Records are added to
+ * a bounded, lock-free ring buffer and drained in batches by a single writer thread, which writes them to a {@link LogSink} and
+ * flushes the sink once per batch.  What happens when the buffer is full is decided by the {@link OverflowPolicy}.
+ * <p>
+ * The backend must be started before records are accepted, and should be closed to write out any queued records.  A shutdown hook
+ * closes the backend if the process exits while it is running.
+ * @author Kevin Quan (kevin.quan@gmail.com)
+ *
+ */
+public class AsyncLogBackend {
+
+    /**
+     * What to do with a record when the ring buffer is full
+     */
+    public static enum OverflowPolicy {
+        /** Wait until the writer has made room for the record */
+        BLOCK,
+        /** Discard the record */
+        DROP,
+        /** Wait for room for one in every {@link AsyncLogBackend#getSampleRate()} overflowing records, and discard the rest */
+        SAMPLE
+    }
+
+    protected final AtomicReferenceArray<LogRecord> mSlots;
+    protected final int mMask;
+    /** The sequence number of the next slot a producer will claim */
+    protected final AtomicLong mTail = new AtomicLong();
+    /** The sequence number of the next slot the writer will read.  Only the writer updates it. */
+    protected final AtomicLong mHead = new AtomicLong();
+    /** The number of records that have been written and flushed */
+    protected volatile long mWritten;
+    protected final AtomicLong mDropped = new AtomicLong();
+    protected final AtomicLong mOverflowed = new AtomicLong();
+    /** The number of producers inside {@link #enqueue(LogRecord)}, which the writer waits for before its final drain */
+    protected final AtomicInteger mProducers = new AtomicInteger();
+    protected long mReportedDropped;
+
+    protected final LogSink mSink;
+    protected final OverflowPolicy mPolicy;
+    protected final int mSampleRate;
+    protected volatile boolean mRunning;
+    protected volatile boolean mWriterWaiting;
+    protected Thread mWriter;
+    protected Thread mShutdownHook;
+
+    /**
+     * @param sink The sink to write records to
+     * @param capacity The number of records the ring buffer can hold, which is rounded up to a power of two
+     * @param policy What to do when the ring buffer is full
+     * @param sampleRate When sampling, one in this many overflowing records is kept
+     */
+    public AsyncLogBackend(LogSink sink, int capacity, OverflowPolicy policy, int sampleRate) {
+        if (sink == null || policy == null) {
+            throw new IllegalArgumentException("A sink and overflow policy are required");
+        }
+        int size = Integer.highestOneBit(Math.max(2, Math.min(capacity, MAX_CAPACITY) - 1)) << 1;
+        mSlots = new AtomicReferenceArray<LogRecord>(size);
+        mMask = size - 1;
+        mSink = sink;
+        mPolicy = policy;
+        mSampleRate = Math.max(1, sampleRate);
+    }
+
+    /**
+     * Creates a backend with a buffer of {@link #DEFAULT_CAPACITY} records which blocks when it is full
+     * @param sink The sink to write records to
+     */
+    public AsyncLogBackend(LogSink sink) {
+        this(sink, DEFAULT_CAPACITY, OverflowPolicy.BLOCK, 1);
+    }
+
+    /**
+     * Stops accepting records, writes out the records already queued, and closes the sink
+     */
+    public void close() {
+        synchronized (this) {
+            if (!mRunning) {
+                return;
+            }
+            mRunning = false;
+        }
+        LockSupport.unpark(mWriter);
+        boolean interrupted = false;
+        while (mWriter.isAlive() && mWriter != Thread.currentThread()) {
+            try {
+                mWriter.join();
+            } catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(mShutdownHook);
+        } catch (IllegalStateException squelched) {
+            // The process is already shutting down
+        }
+    }
+
+    /**
+     * Adds a record to the queue to be written.  Depending on the overflow policy, this either waits for room or discards the record
+     * if the queue is full.  The writer thread itself (e.g., a sink logging its own errors) never waits, as only it can make room.
+     * @param record The record to write
+     * @return False if the backend is not running, or the writer thread would have to wait for room, so the record should be written
+     *          some other way.  True if the record was queued or deliberately discarded.
+     */
+    public boolean enqueue(LogRecord record) {
+        // Announce the producer before checking whether the backend is running, so that the writer's final drain waits for it
+        mProducers.incrementAndGet();
+        try {
+            if (!mRunning) {
+                return false;
+            }
+            if (!offer(record)) {
+                if (mPolicy == OverflowPolicy.DROP
+                        || (mPolicy == OverflowPolicy.SAMPLE && mOverflowed.incrementAndGet() % mSampleRate != 0)) {
+                    mDropped.incrementAndGet();
+                    return true;
+                }
+                if (Thread.currentThread() == mWriter) {
+                    return false;
+                }
+                while (!offer(record)) {
+                    if (!mRunning) {
+                        return false;
+                    }
+                    LockSupport.parkNanos(BLOCKED_WAIT_NANOS);
+                }
+            }
+        } finally {
+            mProducers.decrementAndGet();
+        }
+        if (mWriterWaiting) {
+            LockSupport.unpark(mWriter);
+        }
+        return true;
+    }
+
+    /**
+     * Waits until every record queued before this call has been written and flushed, or the backend is closed
+     */
+    public void flush() {
+        long target = mTail.get();
+        while (mWritten < target && mRunning) {
+            if (mWriterWaiting) {
+                LockSupport.unpark(mWriter);
+            }
+            LockSupport.parkNanos(BLOCKED_WAIT_NANOS);
+        }
+    }
+
+    public int getCapacity() {
+        return mSlots.length();
+    }
+
+    /**
+     * @return The number of records discarded because the queue was full
+     */
+    public long getDroppedCount() {
+        return mDropped.get();
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return mPolicy;
+    }
+
+    public int getSampleRate() {
+        return mSampleRate;
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * Starts the writer thread, after which records are accepted
+     * @return This backend
+     */
+    public synchronized AsyncLogBackend start() {
+        if (mRunning || mWriter != null) {
+            return this;
+        }
+        mRunning = true;
+        mWriter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runWriter();
+            }
+        }, TAG);
+        mWriter.setDaemon(true);
+        mWriter.start();
+        mShutdownHook = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                close();
+            }
+        }, TAG+"-shutdown");
+        Runtime.getRuntime().addShutdownHook(mShutdownHook);
+        return this;
+    }
+
+    /**
+     * Writes out every record that has been published, up to the end of the buffer
+     * @return The number of records written
+     */
+    protected int drain() {
+        long head = mHead.get();
+        int count = 0;
+        LogRecord record;
+        while ((record = mSlots.get((int)head & mMask)) != null) {
+            // Free the slot before moving the head past it, so that producers only ever claim empty slots
+            mSlots.set((int)head & mMask, null);
+            mHead.set(++head);
+            write(record);
+            count++;
+        }
+        long dropped = mDropped.get();
+        boolean reportedDrops = dropped != mReportedDropped;
+        if (reportedDrops) {
+            write(new LogRecord(Log.WARN, TAG, (dropped - mReportedDropped)+" log records were dropped as the queue was full", null));
+            mReportedDropped = dropped;
+        }
+        if (count > 0 || reportedDrops) {
+            try {
+                mSink.flush();
+            } catch (IOException e) {
+                System.err.println("Could not flush log records: "+e.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println("Log sink failed while flushing records: "+e);
+            }
+            mWritten = head;
+        }
+        return count;
+    }
+
+    /**
+     * Tries to add a record to the ring buffer without waiting
+     * @param record The record to add
+     * @return True if the record was added, or false if the buffer is full
+     */
+    protected boolean offer(LogRecord record) {
+        while (true) {
+            long tail = mTail.get();
+            if (tail - mHead.get() >= mSlots.length()) {
+                return false;
+            }
+            if (mTail.compareAndSet(tail, tail + 1)) {
+                mSlots.set((int)tail & mMask, record);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Writes records until the backend is closed.  If the writer stops for any other reason, the backend stops running, so that
+     * producers write synchronously rather than waiting forever for room in the queue.
+     */
+    protected void runWriter() {
+        try {
+            while (mRunning) {
+                if (drain() > 0) {
+                    continue;
+                }
+                mWriterWaiting = true;
+                // Check again after announcing that we are waiting, in case a record was published before the announcement was seen
+                if (mSlots.get((int)mHead.get() & mMask) == null && mRunning) {
+                    LockSupport.parkNanos(IDLE_WAIT_NANOS);
+                }
+                mWriterWaiting = false;
+            }
+            // Write whatever producers managed to publish before the backend was closed, including any that were still publishing
+            while (mProducers.get() > 0 || mHead.get() < mTail.get()) {
+                if (drain() == 0) {
+                    Thread.yield();
+                }
+            }
+            drain();
+            try {
+                mSink.close();
+            } catch (IOException e) {
+                System.err.println("Could not close log sink: "+e.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println("Log sink failed while closing: "+e);
+            }
+        } finally {
+            mWriterWaiting = false;
+            mRunning = false;
+        }
+    }
+
+    protected void write(LogRecord record) {
+        try {
+            mSink.write(record);
+        } catch (IOException e) {
+            // The logger can't be used to report its own failures
+            System.err.println("Could not write log record: "+e.getMessage());
+        } catch (RuntimeException e) {
+            // A record the sink can't handle is discarded rather than stopping the writer
+            System.err.println("Log sink failed to write a record: "+e);
+        }
+    }
+
+    private static final String TAG = AsyncLogBackend.class.getSimpleName();
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    protected static final int MAX_CAPACITY = 1 << 30;
+
+    protected static final long BLOCKED_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    protected static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+}
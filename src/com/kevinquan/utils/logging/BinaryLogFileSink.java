@@ -0,0 +1,312 @@
+/*
+ * Copyright 2015 Kevin Quan (kevin.quan@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kevinquan.utils.logging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.kevinquan.utils.StringUtils;
+
+/**
+ * Writes records to files as length-prefixed binary records, which are cheaper to write than formatted text and can be decoded
+ * with {@link BinaryLogReader}.  Records are encoded into a reusable, pre-allocated direct buffer and written to the file's channel when the
+ * buffer fills or the batch ends.  A new file is started when the current one reaches a maximum size or age.
+ * <p>
+ * Each file starts with a header of {@link #MAGIC} and {@link #VERSION}.  Each record is then an int holding the length of the
+ * rest of the record, the timestamp as a long, the level as a byte, and the tag, thread name, message and stack trace as strings.
+ * Strings are an int holding their length in UTF-8 bytes, or -1 for null, followed by the bytes.  Everything is big endian.
+ * <p>
+ * Files are named with the prefix, the time they were started in milliseconds and {@link #FILE_EXTENSION}, so sorting their names
+ * sorts them by age.
+ * @author Kevin Quan (kevin.quan@gmail.com)
+ *
+ */
+public class BinaryLogFileSink implements LogSink {
+
+    protected Path mDirectory;
+    protected String mPrefix;
+    protected long mMaxFileSize;
+    protected long mMaxFileAge;
+
+    protected FileChannel mChannel;
+    protected Path mFile;
+    protected long mFileStarted;
+    /** The number of bytes written to the current file, not including those still in the buffer */
+    protected long mFileSize;
+    protected ByteBuffer mBuffer;
+    /** Holds strings while they're encoded, which is large enough for any string that fits in the buffer */
+    protected byte[] mScratch = new byte[(BUFFER_SIZE + 1) * MAX_BYTES_PER_CHAR];
+
+    /**
+     * @param directory The directory to write files to, which is created if necessary
+     * @param prefix The prefix of the names of the files
+     * @param maxFileSize The size in bytes after which a new file is started, or 0 to not rotate by size
+     * @param maxFileAge The age in milliseconds after which a new file is started, or 0 to not rotate by age
+     * @throws IOException If the directory or first file could not be created
+     */
+    public BinaryLogFileSink(Path directory, String prefix, long maxFileSize, long maxFileAge) throws IOException {
+        mDirectory = directory;
+        mPrefix = prefix == null ? "" : prefix;
+        mMaxFileSize = maxFileSize;
+        mMaxFileAge = maxFileAge;
+        mBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        Files.createDirectories(mDirectory);
+        openFile(System.currentTimeMillis());
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            mChannel.close();
+        }
+    }
+
+    /**
+     * Encodes a record into a buffer
+     * @param record The record to encode
+     * @param buffer The buffer to encode into
+     * @return True if the record fit in the buffer.  If it didn't, the buffer's position is unchanged.
+     */
+    protected boolean encode(LogRecord record, ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < RECORD_HEADER_SIZE) {
+            return false;
+        }
+        buffer.position(start + 4);
+        buffer.putLong(record.getTimestamp());
+        buffer.put((byte)record.getLevel());
+        if (!encode(record.getTag(), buffer) || !encode(record.getThreadName(), buffer)
+                || !encode(record.getMessage(), buffer) || !encode(record.getThrowableText(), buffer)) {
+            buffer.position(start);
+            return false;
+        }
+        buffer.putInt(start, buffer.position() - start - 4);
+        return true;
+    }
+
+    /**
+     * Encodes a length-prefixed string into a buffer.  The string is encoded into a reusable array first, as encoding directly
+     * into a direct buffer would go through the slow path of a {@link java.nio.charset.CharsetEncoder}.
+     * @param value The string to encode
+     * @param buffer The buffer to encode into
+     * @return True if the string fit in the buffer
+     */
+    protected boolean encode(String value, ByteBuffer buffer) {
+        if (buffer.remaining() < 4) {
+            return false;
+        }
+        if (value == null) {
+            buffer.putInt(-1);
+            return true;
+        }
+        int length = value.length();
+        // Every char takes at least one byte, and a string that fits in the buffer always fits in the scratch array
+        if (buffer.remaining() - 4 < length || length > BUFFER_SIZE) {
+            return false;
+        }
+        int count = encodeUtf8(value, 0, length, mScratch);
+        if (buffer.remaining() < 4 + count) {
+            return false;
+        }
+        buffer.putInt(count);
+        buffer.put(mScratch, 0, count);
+        return true;
+    }
+
+    /**
+     * Encodes a range of a string as UTF-8.  Unpaired surrogates are replaced with '?', as the UTF-8 encoder would.
+     * @param value The string to encode
+     * @param from The index of the first char to encode
+     * @param to The index after the last char to encode, which must not split a surrogate pair
+     * @param bytes The array to encode into, which must have room for {@link #MAX_BYTES_PER_CHAR} bytes per char
+     * @return The number of bytes encoded
+     */
+    protected static int encodeUtf8(String value, int from, int to, byte[] bytes) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes[count++] = (byte)c;
+            } else if (c < 0x800) {
+                bytes[count++] = (byte)(0xC0 | (c >> 6));
+                bytes[count++] = (byte)(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                bytes[count++] = (byte)(0xF0 | (codePoint >> 18));
+                bytes[count++] = (byte)(0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[count++] = (byte)(0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[count++] = (byte)(0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                bytes[count++] = (byte)'?';
+            } else {
+                bytes[count++] = (byte)(0xE0 | (c >> 12));
+                bytes[count++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+                bytes[count++] = (byte)(0x80 | (c & 0x3F));
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        mBuffer.flip();
+        try {
+            while (mBuffer.hasRemaining()) {
+                mFileSize += mChannel.write(mBuffer);
+            }
+        } finally {
+            // Keep whatever couldn't be written for the next flush, and leave the buffer ready to be written to either way
+            mBuffer.compact();
+        }
+    }
+
+    public Path getCurrentFile() {
+        return mFile;
+    }
+
+    /**
+     * Creates a new file and writes its header
+     * @param started The time the file is started, which names it
+     * @throws IOException If the file could not be created
+     */
+    protected void openFile(long started) throws IOException {
+        Path file = mDirectory.resolve(mPrefix + started + FILE_EXTENSION);
+        while (Files.exists(file)) {
+            file = mDirectory.resolve(mPrefix + (++started) + FILE_EXTENSION);
+        }
+        mChannel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        mFile = file;
+        mFileStarted = started;
+        mFileSize = 0;
+        mBuffer.putInt(MAGIC).put(VERSION);
+    }
+
+    /**
+     * Writes any buffered records, then starts a new file
+     * @param now The current time
+     * @throws IOException If the current file could not be closed, or the new file could not be created
+     */
+    protected void rotate(long now) throws IOException {
+        flush();
+        mChannel.close();
+        openFile(Math.max(now, mFileStarted + 1));
+    }
+
+    @Override
+    public void write(LogRecord record) throws IOException {
+        long timestamp = record.getTimestamp();
+        if ((mMaxFileSize > 0 && mFileSize + mBuffer.position() >= mMaxFileSize)
+                || (mMaxFileAge > 0 && timestamp - mFileStarted >= mMaxFileAge)) {
+            rotate(timestamp);
+        }
+        if (encode(record, mBuffer)) {
+            return;
+        }
+        flush();
+        if (encode(record, mBuffer)) {
+            return;
+        }
+        writeLarge(record);
+    }
+
+    /**
+     * Writes a record which is larger than the whole buffer by passing it through the buffer in pieces, so that neither a heap
+     * buffer of the record's size nor the direct buffer the channel would copy it into is needed
+     * @param record The record to write
+     * @throws IOException If the record is larger than {@link #MAX_RECORD_SIZE}, or could not be written
+     */
+    protected void writeLarge(LogRecord record) throws IOException {
+        long length = RECORD_HEADER_SIZE - 4;
+        String[] values = {record.getTag(), record.getThreadName(), record.getMessage(), record.getThrowableText()};
+        int[] encodedLengths = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null && values[i].length() > MAX_RECORD_SIZE) {
+                throw new IOException("Dropped a record of more than "+MAX_RECORD_SIZE+" bytes");
+            }
+            encodedLengths[i] = values[i] == null ? -1 : StringUtils.getUtf8Length(values[i]);
+            length += 4 + Math.max(encodedLengths[i], 0);
+        }
+        if (length > MAX_RECORD_SIZE) {
+            throw new IOException("Dropped a record of "+length+" bytes, which is more than "+MAX_RECORD_SIZE);
+        }
+        mBuffer.putInt((int)length);
+        mBuffer.putLong(record.getTimestamp());
+        mBuffer.put((byte)record.getLevel());
+        for (int i = 0; i < values.length; i++) {
+            if (mBuffer.remaining() < 4) {
+                flush();
+            }
+            mBuffer.putInt(encodedLengths[i]);
+            String value = values[i];
+            int valueLength = value == null ? 0 : value.length();
+            for (int from = 0; from < valueLength; ) {
+                int to = Math.min(from + BUFFER_SIZE, valueLength);
+                // Keep surrogate pairs together, so that they're encoded as one code point
+                if (to < valueLength && Character.isHighSurrogate(value.charAt(to - 1)) && Character.isLowSurrogate(value.charAt(to))) {
+                    to++;
+                }
+                int count = encodeUtf8(value, from, to, mScratch);
+                for (int offset = 0; offset < count; ) {
+                    if (!mBuffer.hasRemaining()) {
+                        flush();
+                    }
+                    int piece = Math.min(count - offset, mBuffer.remaining());
+                    mBuffer.put(mScratch, offset, piece);
+                    offset += piece;
+                }
+                from = to;
+            }
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static final String TAG = BinaryLogFileSink.class.getSimpleName();
+
+    /**
+     * The first bytes of every file, which spell "KQLG"
+     */
+    public static final int MAGIC = 0x4B514C47;
+
+    /**
+     * The version of the record format, which follows the magic number
+     */
+    public static final byte VERSION = 1;
+
+    public static final String FILE_EXTENSION = ".blog";
+
+    protected static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The most bytes a record can take after its length, which keeps a corrupt length from making a reader allocate gigabytes
+     */
+    public static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The size of a record's length, timestamp and level
+     */
+    protected static final int RECORD_HEADER_SIZE = 4 + 8 + 1;
+
+    /**
+     * The most bytes a UTF-16 char can take in UTF-8, which is reached by chars outside surrogate pairs
+     */
+    protected static final int MAX_BYTES_PER_CHAR = 3;
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2015 Kevin Quan (kevin.quan@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kevinquan.utils.logging;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.kevinquan.android.stubs.Log;
+import com.kevinquan.utils.IOUtils;
+import com.kevinquan.utils.StringUtils;
+
+/**
+ * Decodes the records in a file written by {@link BinaryLogFileSink}.  A record that was only partly written, for example because
+ * the process died while writing it, is treated as the end of the file.
+ * @author Kevin Quan (kevin.quan@gmail.com)
+ *
+ */
+public class BinaryLogReader implements Closeable {
+
+    protected Path mFile;
+    protected DataInputStream mInput;
+    protected byte[] mRecord = new byte[INITIAL_RECORD_SIZE];
+
+    /**
+     * Opens a file and checks its header
+     * @param file The file to read
+     * @throws IOException If the file could not be opened, or was not written by {@link BinaryLogFileSink}
+     */
+    public BinaryLogReader(Path file) throws IOException {
+        mFile = file;
+        mInput = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+        try {
+            int magic = mInput.readInt();
+            byte version = mInput.readByte();
+            if (magic != BinaryLogFileSink.MAGIC || version != BinaryLogFileSink.VERSION) {
+                throw new IOException("Not a binary log file, or of an unsupported version: "+file);
+            }
+        } catch (IOException e) {
+            mInput.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        mInput.close();
+    }
+
+    public Path getFile() {
+        return mFile;
+    }
+
+    /**
+     * Reads the next record
+     * @return The record, or null if there are no more records
+     * @throws IOException If the file could not be read or is corrupt
+     */
+    public LogRecord read() throws IOException {
+        int first = mInput.read();
+        if (first < 0) {
+            return null;
+        }
+        int length;
+        try {
+            length = (first << 24) | (mInput.readUnsignedByte() << 16) | mInput.readUnsignedShort();
+            if (length < MIN_RECORD_SIZE || length > BinaryLogFileSink.MAX_RECORD_SIZE) {
+                throw new IOException("Invalid record length "+length+" in "+mFile);
+            }
+            if (length > mRecord.length) {
+                mRecord = new byte[length];
+            }
+            mInput.readFully(mRecord, 0, length);
+        } catch (EOFException eofe) {
+            Log.w(TAG, "Ignoring partly written record at the end of "+mFile);
+            return null;
+        }
+        ByteBuffer record = ByteBuffer.wrap(mRecord, 0, length);
+        try {
+            long timestamp = record.getLong();
+            int level = record.get();
+            String tag = readString(record);
+            String threadName = readString(record);
+            String message = readString(record);
+            String throwableText = readString(record);
+            LogRecord decoded = new LogRecord(timestamp, level, tag, message, null, threadName);
+            decoded.setThrowableText(throwableText);
+            return decoded;
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt record in "+mFile, e);
+        } finally {
+            // Don't hold on to the memory an unusually large record needed while the rest of the file is read
+            if (mRecord.length > MAX_RETAINED_RECORD_SIZE) {
+                mRecord = new byte[INITIAL_RECORD_SIZE];
+            }
+        }
+    }
+
+    /**
+     * Reads all the records in the file
+     * @return The records
+     * @throws IOException If the file could not be read or is corrupt
+     */
+    public List<LogRecord> readAll() throws IOException {
+        List<LogRecord> records = new ArrayList<LogRecord>();
+        LogRecord record;
+        while ((record = read()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * Determines whether a file name is one a {@link BinaryLogFileSink} would give a file
+     * @param name The file name
+     * @param prefix The prefix the sink names files with
+     * @return True if the name is the prefix, a start time and {@link BinaryLogFileSink#FILE_EXTENSION}
+     */
+    protected static boolean isLogFileName(String name, String prefix) {
+        int end = name.length() - BinaryLogFileSink.FILE_EXTENSION.length();
+        if (end <= prefix.length() || !name.startsWith(prefix) || !name.endsWith(BinaryLogFileSink.FILE_EXTENSION)) {
+            return false;
+        }
+        for (int i = prefix.length(); i < end; i++) {
+            if (name.charAt(i) < '0' || name.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lists the files written by a {@link BinaryLogFileSink}
+     * @param directory The directory the sink writes to
+     * @param prefix The prefix the sink names files with
+     * @return The files, oldest first, or an empty list if the directory could not be read
+     */
+    public static List<Path> listFiles(Path directory, String prefix) {
+        List<Path> files = new ArrayList<Path>();
+        final String filePrefix = prefix == null ? "" : prefix;
+        DirectoryStream<Path> entries = null;
+        try {
+            // Only the start time may follow the prefix, so that a sink whose prefix starts with this one isn't matched too
+            entries = Files.newDirectoryStream(directory, new DirectoryStream.Filter<Path>() {
+                @Override
+                public boolean accept(Path entry) {
+                    return isLogFileName(entry.getFileName().toString(), filePrefix);
+                }
+            });
+            for (Path entry : entries) {
+                files.add(entry);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Could not list log files in "+directory, e);
+        } finally {
+            IOUtils.safeClose(entries);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Reads a length-prefixed string
+     * @param record The record to read from
+     * @return The string, which may be null
+     */
+    protected static String readString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > record.remaining()) {
+            throw new IllegalArgumentException("String length "+length+" exceeds the record");
+        }
+        String value = new String(record.array(), record.arrayOffset() + record.position(), length, StringUtils.UTF8_CHARSET);
+        record.position(record.position() + length);
+        return value;
+    }
+
+    private static final String TAG = BinaryLogReader.class.getSimpleName();
+
+    protected static final int BUFFER_SIZE = 64 * 1024;
+
+    protected static final int INITIAL_RECORD_SIZE = 1024;
+
+    /**
+     * The largest record array kept between records
+     */
+    protected static final int MAX_RETAINED_RECORD_SIZE = 64 * 1024;
+
+    /**
+     * The size of the smallest valid record, which has a timestamp, level and four null strings
+     */
+    protected static final int MIN_RECORD_SIZE = 8 + 1 + 4 * 4;
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015 Kevin Quan (kevin.quan@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kevinquan.utils.logging;
+
+import java.io.IOException;
+import java.io.PrintStream;
+
+import com.kevinquan.android.stubs.Log;
+
+/**
+ * Writes records to the console in the same format as the synchronous logger: warnings and errors go to standard error, and
+ * everything else goes to standard output.  Each batch is written to each stream with a single call, so the streams' locks are
+ * taken once per batch rather than once per record.
+ * @author Kevin Quan (kevin.quan@gmail.com)
+ *
+ */
+public class ConsoleLogSink implements LogSink {
+
+    protected StringBuilder mOutput = new StringBuilder();
+    protected StringBuilder mError = new StringBuilder();
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flush(mOutput, System.out);
+        flush(mError, System.err);
+    }
+
+    @Override
+    public void write(LogRecord record) throws IOException {
+        record.appendTo(record.getLevel() >= Log.WARN ? mError : mOutput);
+    }
+
+    protected void flush(StringBuilder pending, PrintStream stream) {
+        if (pending.length() == 0) {
+            return;
+        }
+        stream.print(pending);
+        stream.flush();
+        pending.setLength(0);
+        if (pending.capacity() > MAX_RETAINED_CAPACITY) {
+            pending.trimToSize();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static final String TAG = ConsoleLogSink.class.getSimpleName();
+
+    /**
+     * The largest buffer that is kept between batches
+     */
+    protected static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015 Kevin Quan (kevin.quan@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kevinquan.utils.logging;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * A single log statement, captured so that it can be written later by another thread
+ * @author Kevin Quan (kevin.quan@gmail.com)
+ *
+ */
+public class LogRecord {
+
+    protected long mTimestamp;
+    protected int mLevel;
+    protected String mTag;
+    protected String mMessage;
+    protected Throwable mThrowable;
+    protected String mThreadName;
+    /** The text of the throwable's stack trace, for records decoded from a file whose throwable is no longer available */
+    protected String mThrowableText;
+
+    /**
+     * Captures a log statement made by the current thread at the current time
+     * @param level The level, as one of the {@link com.kevinquan.android.stubs.Log} level constants
+     * @param tag The tag
+     * @param message The message
+     * @param throwable The throwable logged with the message, if any
+     */
+    public LogRecord(int level, String tag, String message, Throwable throwable) {
+        this(System.currentTimeMillis(), level, tag, message, throwable, Thread.currentThread().getName());
+    }
+
+    public LogRecord(long timestamp, int level, String tag, String message, Throwable throwable, String threadName) {
+        mTimestamp = timestamp;
+        mLevel = level;
+        mTag = tag;
+        mMessage = message;
+        mThrowable = throwable;
+        mThreadName = threadName;
+    }
+
+    /**
+     * Appends the record in the same format the console logger uses: <code>[D] tag: message</code>, followed by the stack trace of
+     * the throwable if there is one
+     * @param destination The builder to append to
+     * @return The builder
+     */
+    public StringBuilder appendTo(StringBuilder destination) {
+        destination.append('[').append(getLevelLabel(mLevel)).append("] ").append(mTag).append(": ").append(mMessage).append(LINE_BREAK);
+        String throwableText = getThrowableText();
+        if (throwableText != null) {
+            destination.append(throwableText);
+        }
+        return destination;
+    }
+
+    public int getLevel() {
+        return mLevel;
+    }
+
+    public String getMessage() {
+        return mMessage;
+    }
+
+    public String getTag() {
+        return mTag;
+    }
+
+    public String getThreadName() {
+        return mThreadName;
+    }
+
+    public Throwable getThrowable() {
+        return mThrowable;
+    }
+
+    /**
+     * Retrieves the stack trace logged with the message
+     * @return The stack trace, or null if there was no throwable
+     */
+    public String getThrowableText() {
+        if (mThrowableText == null && mThrowable != null) {
+            mThrowableText = getStackTrace(mThrowable);
+        }
+        return mThrowableText;
+    }
+
+    public long getTimestamp() {
+        return mTimestamp;
+    }
+
+    protected void setThrowableText(String throwableText) {
+        mThrowableText = throwableText;
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder()).toString();
+    }
+
+    /**
+     * Retrieves the single letter used to label a level in console output
+     * @param level The level, as one of the {@link com.kevinquan.android.stubs.Log} level constants
+     * @return The label, or '?' for an unknown level
+     */
+    public static char getLevelLabel(int level) {
+        return level >= 0 && level < LEVEL_LABELS.length ? LEVEL_LABELS[level] : '?';
+    }
+
+    /**
+     * Formats the stack trace of a throwable as printStackTrace() would
+     * @param throwable The throwable
+     * @return The stack trace
+     */
+    public static String getStackTrace(Throwable throwable) {
+        StringWriter writer = new StringWriter();
+        PrintWriter printer = new PrintWriter(writer);
+        throwable.printStackTrace(printer);
+        printer.flush();
+        return writer.toString();
+    }
+
+    @SuppressWarnings("unused")
+    private static final String TAG = LogRecord.class.getSimpleName();
+
+    /**
+     * The labels of the levels, indexed by level
+     */
+    protected static final char[] LEVEL_LABELS = {'?', '?', 'V', 'D', 'I', 'W', 'E', 'A'};
+
+    protected static final String LINE_BREAK = System.getProperty("line.separator");
+}
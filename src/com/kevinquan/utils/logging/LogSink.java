@@ -0,0 +1,46 @@
+/*
+ * Copyright 2015 Kevin Quan (kevin.quan@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kevinquan.utils.logging;
+
+import java.io.IOException;
+
+/**
+ * A destination that log records are written to by {@link AsyncLogBackend}.  Sinks are only used by the backend's writer thread,
+ * so they don't need to be thread safe.  Records are written in batches, and the sink is flushed after each batch.
+ * @author Kevin Quan (kevin.quan@gmail.com)
+ *
+ */
+public interface LogSink {
+
+    /**
+     * Writes a record, which may be buffered until the next flush
+     * @param record The record to write
+     * @throws IOException If the record could not be written
+     */
+    public void write(LogRecord record) throws IOException;
+
+    /**
+     * Ensures all written records have reached their destination
+     * @throws IOException If the records could not be flushed
+     */
+    public void flush() throws IOException;
+
+    /**
+     * Flushes and releases the sink.  No records are written after it is closed.
+     * @throws IOException If the sink could not be closed
+     */
+    public void close() throws IOException;
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015 Kevin Quan (kevin.quan@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kevinquan.utils.logging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.kevinquan.utils.StringUtils;
+
+/**
+ * Appends records to a file as UTF-8 text, in the same format as the console logger.  Records are encoded into a reusable buffer
+ * and written to the file's channel when the buffer fills or the batch ends.
+ * @author Kevin Quan (kevin.quan@gmail.com)
+ *
+ */
+public class TextFileLogSink implements LogSink {
+
+    protected FileChannel mChannel;
+    protected CharsetEncoder mEncoder;
+    protected ByteBuffer mBuffer;
+    protected StringBuilder mText = new StringBuilder();
+
+    /**
+     * Opens a file to append records to, creating it if necessary
+     * @param path The file to write to
+     * @throws IOException If the file could not be opened
+     */
+    public TextFileLogSink(Path path) throws IOException {
+        mChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        mEncoder = StringUtils.UTF8_CHARSET.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        mBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            mChannel.close();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        mBuffer.flip();
+        try {
+            while (mBuffer.hasRemaining()) {
+                mChannel.write(mBuffer);
+            }
+        } finally {
+            // Keep whatever couldn't be written for the next flush, and leave the buffer ready to be written to either way
+            mBuffer.compact();
+        }
+    }
+
+    @Override
+    public void write(LogRecord record) throws IOException {
+        mText.setLength(0);
+        CharBuffer text = CharBuffer.wrap(record.appendTo(mText));
+        mEncoder.reset();
+        while (mEncoder.encode(text, mBuffer, true).isOverflow()) {
+            flush();
+        }
+        while (mEncoder.flush(mBuffer).isOverflow()) {
+            flush();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static final String TAG = TextFileLogSink.class.getSimpleName();
+
+    protected static final int BUFFER_SIZE = 64 * 1024;
+}